@@ -0,0 +1,13 @@
+package com.auth.authservice.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveAuthserviceApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveAuthserviceApplication.class, args);
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.auth.authservice.reactive.configs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU-bound work leaves the event loop for fixed pools sized to the cores. Their queues are bounded too:
+ * once one is full, new work fails with a RejectedExecutionException instead of piling up.
+ */
+@Configuration
+public class SchedulerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordHashingScheduler(MeterRegistry meterRegistry,
+                                              @Value("${app.password-hashing.threads:0}") int threads,
+                                              @Value("${app.password-hashing.queue-capacity:256}") int queueCapacity) {
+        return bounded(meterRegistry, "passwordHashing", "password-hash-", threads, queueCapacity);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jwtSigningScheduler(MeterRegistry meterRegistry,
+                                         @Value("${app.jwt-signing.threads:0}") int threads,
+                                         @Value("${app.jwt-signing.queue-capacity:1024}") int queueCapacity) {
+        return bounded(meterRegistry, "jwtSigning", "jwt-sign-", threads, queueCapacity);
+    }
+
+    private static Scheduler bounded(MeterRegistry meterRegistry, String name, String threadPrefix,
+                                     int threads, int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadPrefix);
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.offload.queue.depth", executor, e -> e.getQueue().size())
+                .description("Tasks waiting for a worker")
+                .tag("pool", name)
+                .register(meterRegistry);
+        new ExecutorServiceMetrics(executor, name, List.of()).bindTo(meterRegistry);
+        return Schedulers.fromExecutorService(executor, name);
+    }
+}
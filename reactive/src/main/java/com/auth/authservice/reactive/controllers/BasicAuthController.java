@@ -0,0 +1,132 @@
+package com.auth.authservice.reactive.controllers;
+
+import com.auth.authservice.reactive.dto.BuildFailureResponse;
+import com.auth.authservice.reactive.dto.requestDto.UserLoginRequestDto;
+import com.auth.authservice.reactive.dto.requestDto.UserRegistrationRequestDto;
+import com.auth.authservice.reactive.dto.responseDto.LoginResponseDto;
+import com.auth.authservice.reactive.dto.responseDto.UserRegistrationMessage;
+import com.auth.authservice.reactive.dto.responseDto.UserRegistrationResponseDto;
+import com.auth.authservice.reactive.entities.Role;
+import com.auth.authservice.reactive.services.AuthService;
+import com.auth.authservice.reactive.services.LoginThrottleService;
+import com.auth.authservice.reactive.services.PasswordHashingService;
+import com.auth.authservice.reactive.services.RoleService;
+import io.r2dbc.spi.R2dbcTransientException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+@RestController
+@RequestMapping("/api/auth")
+public class BasicAuthController {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private LoginThrottleService loginThrottleService;
+
+    @Autowired
+    private BuildFailureResponse buildFailureResponse;
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<UserRegistrationResponseDto>> userRegistration(
+            @RequestBody UserRegistrationRequestDto userRegistrationRequestDto) {
+
+        Role role = roleService.getDefaultRole();
+        return authService.register(userRegistrationRequestDto)
+                .map(userInfo -> {
+                    UserRegistrationMessage message = UserRegistrationMessage.builder()
+                            .message("User has been registered")
+                            .createdDate(userInfo.getCreatedDate())
+                            .success(true)
+                            .build();
+
+                    UserRegistrationResponseDto response = UserRegistrationResponseDto.builder()
+                            .id(userInfo.getId().toString())
+                            .username(userInfo.getUsername())
+                            .email(userInfo.getEmail())
+                            .role(role.getRoleName().name())
+                            .data(message)
+                            .build();
+
+                    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+                })
+                .onErrorResume(ex -> Mono.just(registrationFailure(userRegistrationRequestDto, ex)));
+    }
+
+    // basic-login is the servlet service's path, so clients can switch stacks without changes
+    @PostMapping({"/login", "/basic-login"})
+    public Mono<ResponseEntity<LoginResponseDto>> userBasicLogin(@RequestBody UserLoginRequestDto userLoginRequestDto,
+                                                                 ServerHttpRequest request){
+        // Rejected here, before any lookup or hashing work is spent on the attempt. The check is in memory, fine on the event loop
+        return Mono.fromRunnable(() -> loginThrottleService.checkLogin(userLoginRequestDto.getUsernameOrEmail(), clientIp(request)))
+                .then(Mono.defer(() -> authService.basicLogin(userLoginRequestDto)))
+                .map(ResponseEntity::ok)
+                .onErrorResume(ex -> Mono.just(loginFailure(userLoginRequestDto, ex)));
+    }
+
+    private ResponseEntity<UserRegistrationResponseDto> registrationFailure(UserRegistrationRequestDto requestDto, Throwable ex) {
+        if (ex instanceof AuthService.UserAlreadyExistsException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(buildFailureResponse.registrationBuildFailureResponse(requestDto, "User already exists"));
+        }
+        if (isBusy(ex)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(buildFailureResponse.registrationBuildFailureResponse(requestDto, "Service busy. Please try again."));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(buildFailureResponse.registrationBuildFailureResponse(requestDto, "Registration failed. Please try again."));
+    }
+
+    private ResponseEntity<LoginResponseDto> loginFailure(UserLoginRequestDto requestDto, Throwable ex) {
+        if (ex instanceof LoginThrottleService.TooManyAttemptsException throttled) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(throttled.getRetryAfterSeconds()))
+                    .body(buildFailureResponse.loginBuildFailureResponse(requestDto.getUsernameOrEmail(), "Too many attempts"));
+        }
+        if (isBusy(ex)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(buildFailureResponse.loginBuildFailureResponse(requestDto.getUsernameOrEmail(), "Service busy"));
+        }
+        return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED)
+                .body(buildFailureResponse.loginBuildFailureResponse(requestDto.getUsernameOrEmail(), "Login failed"));
+    }
+
+    // Same key as the servlet service's getRemoteAddr(), the peer address
+    private static String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) {
+            return "unknown";
+        }
+        return remoteAddress.getAddress() != null ? remoteAddress.getAddress().getHostAddress() : remoteAddress.getHostString();
+    }
+
+    // An offload queue is full, or no pooled connection freed up within max-acquire-time
+    private static boolean isBusy(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof PasswordHashingService.HashingCapacityExceededException
+                    || t instanceof RejectedExecutionException
+                    || t instanceof TimeoutException
+                    || t instanceof R2dbcTransientException
+                    || t instanceof TransientDataAccessException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.auth.authservice.reactive.dto;
+
+import com.auth.authservice.reactive.dto.requestDto.UserRegistrationRequestDto;
+import com.auth.authservice.reactive.dto.responseDto.LoginResponseDto;
+import com.auth.authservice.reactive.dto.responseDto.UserRegistrationMessage;
+import com.auth.authservice.reactive.dto.responseDto.UserRegistrationResponseDto;
+import org.springframework.stereotype.Component;
+
+// Same failure bodies as the servlet service, clients cannot tell which stack answered
+@Component
+public class BuildFailureResponse {
+
+    public UserRegistrationResponseDto registrationBuildFailureResponse(UserRegistrationRequestDto requestDto, String message) {
+        return UserRegistrationResponseDto.builder()
+                .id(null)
+                .username(requestDto.getUsername())
+                .email(requestDto.getEmail())
+                .role(null)
+                .data(UserRegistrationMessage.builder()
+                        .message(message)
+                        .createdDate(null)
+                        .success(false)
+                        .build())
+                .build();
+    }
+
+    public LoginResponseDto loginBuildFailureResponse(String usernameOrEmail, String message) {
+        return LoginResponseDto.builder()
+                .success(false)
+                .message("Something went wrong. Token might be expired.")
+                .token(null)
+                .expirationDate(null)
+                .username(usernameOrEmail)
+                .build();
+    }
+}
@@ -0,0 +1,15 @@
+package com.auth.authservice.reactive.dto;
+
+import com.auth.authservice.reactive.enums.UserRole;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Everything a login needs from users and role, loaded by a single joined query
+@Data
+@AllArgsConstructor
+public class UserCredentials {
+    private String username;
+    private String email;
+    private String password;
+    private UserRole roleName;
+}
@@ -0,0 +1,11 @@
+package com.auth.authservice.reactive.dto.requestDto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class UserLoginRequestDto {
+    private String usernameOrEmail;
+    private String password;
+}
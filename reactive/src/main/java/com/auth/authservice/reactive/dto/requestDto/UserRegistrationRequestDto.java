@@ -0,0 +1,14 @@
+package com.auth.authservice.reactive.dto.requestDto;
+
+import lombok.*;
+
+@Data
+@Builder
+public class UserRegistrationRequestDto {
+    private String firstName;
+    private String lastName;
+    private String username;
+    private String password;
+    private String email;
+    private String contactNumber;
+}
@@ -0,0 +1,19 @@
+package com.auth.authservice.reactive.entities;
+
+import com.auth.authservice.reactive.enums.UserRole;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("role")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Role {
+
+    @Id
+    private Integer id;
+
+    private UserRole roleName;
+}
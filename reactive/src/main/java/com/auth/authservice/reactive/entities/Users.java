@@ -0,0 +1,36 @@
+package com.auth.authservice.reactive.entities;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// The servlet service's users table, the schema is owned and migrated there
+@Table("users")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Users {
+
+    @Id
+    private UUID id;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String username;
+
+    private String email;
+
+    private String password;
+
+    private LocalDate createdDate;
+
+    private String contactNumber;
+
+    private Integer roleId;
+}
@@ -0,0 +1,8 @@
+package com.auth.authservice.reactive.enums;
+
+public enum UserRole {
+    ADMIN,
+    USER,
+    // Service accounts of gateways and resource servers calling /api/auth/introspect
+    INTROSPECT
+}
@@ -0,0 +1,88 @@
+package com.auth.authservice.reactive.jwt;
+
+import com.auth.authservice.reactive.dto.UserCredentials;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Serializer;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.UUID;
+
+/**
+ * Issues the same access tokens as the servlet service's JwtUtils (HS256 without a kid, jti, subject and
+ * roles), signed on the bounded jwt-signing scheduler.
+ */
+@Component
+public class JwtUtils {
+
+    @Value("${jwt.secret}")
+    private String secretKey;
+
+    @Value("${jwt.expiration}")
+    private long expirationInMs;
+
+    @Autowired
+    @Qualifier("jwtSigningScheduler")
+    private Scheduler scheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Key signingKey;
+    private Serializer<Map<String, ?>> serializer;
+    private Timer signTimer;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secretKey));
+        serializer = loadSerializer();
+        signTimer = Timer.builder("auth.jwt")
+                .description("Time to sign or to parse and verify an access token")
+                .tag("operation", "sign")
+                .register(meterRegistry);
+    }
+
+    public Mono<String> generateToken(UserCredentials user) {
+        return Mono.fromCallable(() -> signTimer.recordCallable(() -> sign(user)))
+                .subscribeOn(scheduler);
+    }
+
+    private String sign(UserCredentials user) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .serializeToJsonWith(serializer)
+                .setId(UUID.randomUUID().toString()) // jti, lets a single token be revoked
+                .setSubject(user.getUsername())
+                .claim("roles", List.of("ROLE_" + user.getRoleName().name()))
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expirationInMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    public Date getExpiratonDate(){
+        return new Date(System.currentTimeMillis() + expirationInMs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Serializer<Map<String, ?>> loadSerializer() {
+        return ServiceLoader.load(Serializer.class)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No JWT JSON serializer on the classpath"));
+    }
+}
@@ -0,0 +1,7 @@
+package com.auth.authservice.reactive.repository;
+
+import com.auth.authservice.reactive.entities.Role;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+public interface RoleRepository extends ReactiveCrudRepository<Role, Integer> {
+}
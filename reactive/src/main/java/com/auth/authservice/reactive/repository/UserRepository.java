@@ -0,0 +1,26 @@
+package com.auth.authservice.reactive.repository;
+
+import com.auth.authservice.reactive.dto.UserCredentials;
+import com.auth.authservice.reactive.entities.Users;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@Repository
+public interface UserRepository extends ReactiveCrudRepository<Users, UUID> {
+
+    Mono<Boolean> existsByEmail(String email);
+
+    Mono<Boolean> existsByUsername(String username);
+
+    @Query("SELECT u.username, u.email, u.password, r.role_name FROM users u JOIN role r ON r.id = u.role_id " +
+            "WHERE u.username = :username")
+    Mono<UserCredentials> findCredentialsByUsername(String username);
+
+    @Query("SELECT u.username, u.email, u.password, r.role_name FROM users u JOIN role r ON r.id = u.role_id " +
+            "WHERE u.email = :email")
+    Mono<UserCredentials> findCredentialsByEmail(String email);
+}
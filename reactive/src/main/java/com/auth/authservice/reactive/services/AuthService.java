@@ -0,0 +1,103 @@
+package com.auth.authservice.reactive.services;
+
+import com.auth.authservice.reactive.dto.UserCredentials;
+import com.auth.authservice.reactive.dto.requestDto.UserLoginRequestDto;
+import com.auth.authservice.reactive.dto.requestDto.UserRegistrationRequestDto;
+import com.auth.authservice.reactive.dto.responseDto.LoginResponseDto;
+import com.auth.authservice.reactive.entities.Role;
+import com.auth.authservice.reactive.entities.Users;
+import com.auth.authservice.reactive.jwt.JwtUtils;
+import com.auth.authservice.reactive.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+@Service
+public class AuthService {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    R2dbcEntityTemplate r2dbcEntityTemplate;
+
+    @Autowired
+    RoleService roleService;
+
+    @Autowired
+    PasswordHashingService passwordHashingService;
+
+    @Autowired
+    JwtUtils jwtUtils;
+
+    public Mono<Users> register(UserRegistrationRequestDto userRegistrationRequestDto){
+        Role userRole = roleService.getDefaultRole();
+
+        // Checked before hashing so duplicate sign-ups never cost a BCrypt round
+        return userRepository.existsByEmail(userRegistrationRequestDto.getEmail())
+                .flatMap(exists -> exists
+                        ? Mono.<String>error(new UserAlreadyExistsException("User already exists"))
+                        : passwordHashingService.encode(userRegistrationRequestDto.getPassword()))
+                .flatMap(encodedPassword -> r2dbcEntityTemplate.insert(Users.builder()
+                        .id(UUID.randomUUID())
+                        .firstName(userRegistrationRequestDto.getFirstName())
+                        .lastName(userRegistrationRequestDto.getLastName())
+                        .username(userRegistrationRequestDto.getUsername())
+                        .password(encodedPassword)
+                        .email(userRegistrationRequestDto.getEmail())
+                        .contactNumber(userRegistrationRequestDto.getContactNumber())
+                        .createdDate(LocalDate.now())
+                        .roleId(userRole.getId())
+                        .build()))
+                // A concurrent sign-up with the same username or email won the unique constraint
+                .onErrorMap(DataIntegrityViolationException.class, e -> new UserAlreadyExistsException("User already exists"));
+    }
+
+    public Mono<LoginResponseDto> basicLogin(UserLoginRequestDto userLoginRequestDto){
+        String usernameOrEmail = userLoginRequestDto.getUsernameOrEmail();
+        // Single round trip: the hash, username and role come back together
+        Mono<UserCredentials> credentials = EMAIL_PATTERN.matcher(usernameOrEmail).matches()
+                ? userRepository.findCredentialsByEmail(usernameOrEmail)
+                : userRepository.findCredentialsByUsername(usernameOrEmail);
+
+        return credentials
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException("User not found with: " + usernameOrEmail)))
+                .flatMap(user -> passwordHashingService.matches(userLoginRequestDto.getPassword(), user.getPassword())
+                        .flatMap(matched -> matched
+                                ? jwtUtils.generateToken(user)
+                                : Mono.error(new IncorrectPasswordException("Incorrect credentials")))
+                        .map(token -> LoginResponseDto.builder()
+                                .success(true)
+                                .message("Login Successful")
+                                .token(token)
+                                .expirationDate(jwtUtils.getExpiratonDate())
+                                .username(user.getUsername())
+                                .build()));
+    }
+
+    public static class UserAlreadyExistsException extends RuntimeException {
+        public UserAlreadyExistsException(String message) {
+            super(message);
+        }
+    }
+
+    public static class UserNotFoundException extends RuntimeException {
+        public UserNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    public static class IncorrectPasswordException extends RuntimeException {
+        public IncorrectPasswordException(String message) {
+            super(message);
+        }
+    }
+}
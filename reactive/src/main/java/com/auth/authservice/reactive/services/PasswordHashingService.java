@@ -0,0 +1,62 @@
+package com.auth.authservice.reactive.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs BCrypt on the bounded password-hashing scheduler, never on an event-loop thread.
+ * When its queue is full the returned Mono fails with {@link HashingCapacityExceededException}.
+ */
+@Service
+public class PasswordHashingService {
+
+    // Same encoder and strength as the servlet service, hashes are interchangeable
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private final Scheduler scheduler;
+    private final Timer verifyTimer;
+    private final Timer encodeTimer;
+
+    public PasswordHashingService(@Qualifier("passwordHashingScheduler") Scheduler scheduler,
+                                  MeterRegistry meterRegistry) {
+        this.scheduler = scheduler;
+        this.verifyTimer = hashingTimer(meterRegistry, "verify");
+        this.encodeTimer = hashingTimer(meterRegistry, "encode");
+    }
+
+    public Mono<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(verifyTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public Mono<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    private <T> Mono<T> submit(Timer hashTimer, Callable<T> task) {
+        return Mono.fromCallable(() -> hashTimer.recordCallable(task))
+                .subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class,
+                        e -> new HashingCapacityExceededException("Password hashing queue is full"));
+    }
+
+    private static Timer hashingTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hashing")
+                .description("Time a worker spends running BCrypt, excluding the queue wait")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    public static class HashingCapacityExceededException extends RuntimeException {
+        public HashingCapacityExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.auth.authservice.reactive.services;
+
+import com.auth.authservice.reactive.entities.Role;
+import com.auth.authservice.reactive.enums.UserRole;
+import com.auth.authservice.reactive.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Role rows never change at runtime, so they are loaded (and seeded if missing) once at startup,
+ * the same way the servlet service does it.
+ */
+// Loads after spring.sql.init scripts when those are used, as in the tests
+@DependsOnDatabaseInitialization
+@Service
+public class RoleService {
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @Autowired
+    R2dbcEntityTemplate r2dbcEntityTemplate;
+
+    @Value("${app.default.role}")
+    private String defaultRoleName;
+
+    private final Map<UserRole, Role> roles = new EnumMap<>(UserRole.class);
+    private Role defaultRole;
+
+    // Blocking is fine here, startup runs on the main thread and not on an event loop
+    @PostConstruct
+    public void loadRoles() {
+        roleRepository.findAll().doOnNext(role -> roles.put(role.getRoleName(), role)).blockLast();
+        Flux.fromArray(UserRole.values())
+                .filter(userRole -> !roles.containsKey(userRole))
+                .concatMap(this::seed)
+                .doOnNext(role -> roles.put(role.getRoleName(), role))
+                .blockLast();
+        defaultRole = getRole(UserRole.valueOf(defaultRoleName));
+    }
+
+    public Role getRole(UserRole userRole) {
+        return roles.get(userRole);
+    }
+
+    public Role getDefaultRole() {
+        return defaultRole;
+    }
+
+    private Mono<Role> seed(UserRole userRole) {
+        Role role = Role.builder()
+                .id(userRole.ordinal())
+                .roleName(userRole)
+                .build();
+        // insert, not save: save() would try an update because the id is already set
+        return r2dbcEntityTemplate.insert(role)
+                // Another node seeded the same row first
+                .onErrorResume(DataIntegrityViolationException.class, e -> roleRepository.findById(userRole.ordinal()));
+    }
+}
@@ -0,0 +1,129 @@
+package com.auth.authservice.reactive;
+
+import com.auth.authservice.reactive.dto.requestDto.UserLoginRequestDto;
+import com.auth.authservice.reactive.dto.requestDto.UserRegistrationRequestDto;
+import com.auth.authservice.reactive.dto.responseDto.LoginResponseDto;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BasicAuthControllerTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("reactive-test-secret-reactive-test-secret".getBytes(StandardCharsets.UTF_8));
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getFirstMappedPort() + "/" + postgres.getDatabaseName());
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+        registry.add("spring.sql.init.mode", () -> "always");
+        registry.add("jwt.secret", () -> SECRET);
+        registry.add("jwt.expiration", () -> "60000");
+        registry.add("app.default.role", () -> "USER");
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void registeredUserCanLogInWithUsernameOrEmail() {
+        webTestClient.post().uri("/api/auth/register")
+                .bodyValue(registration("alice"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.role").isEqualTo("USER")
+                .jsonPath("$.data.success").isEqualTo(true);
+
+        for (String identifier : List.of("alice", "alice@example.com")) {
+            LoginResponseDto login = webTestClient.post().uri("/api/auth/login")
+                    .bodyValue(UserLoginRequestDto.builder().usernameOrEmail(identifier).password("password-1").build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(LoginResponseDto.class)
+                    .returnResult().getResponseBody();
+
+            // Same claims the servlet service puts in its tokens, verified with the shared secret
+            Claims claims = Jwts.parserBuilder()
+                    .setSigningKey(Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET)))
+                    .build()
+                    .parseClaimsJws(login.getToken())
+                    .getBody();
+            assertEquals("alice", claims.getSubject());
+            assertEquals(List.of("ROLE_USER"), claims.get("roles"));
+            assertNotNull(claims.getId());
+        }
+    }
+
+    @Test
+    void duplicateRegistrationIsRejected() {
+        webTestClient.post().uri("/api/auth/register").bodyValue(registration("bob"))
+                .exchange().expectStatus().isCreated();
+
+        webTestClient.post().uri("/api/auth/register").bodyValue(registration("bob"))
+                .exchange().expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void wrongPasswordAndUnknownUserFailTheSameWay() {
+        webTestClient.post().uri("/api/auth/register").bodyValue(registration("carol"))
+                .exchange().expectStatus().isCreated();
+
+        webTestClient.post().uri("/api/auth/login")
+                .bodyValue(UserLoginRequestDto.builder().usernameOrEmail("carol").password("wrong").build())
+                .exchange().expectStatus().isEqualTo(417);
+        webTestClient.post().uri("/api/auth/basic-login")
+                .bodyValue(UserLoginRequestDto.builder().usernameOrEmail("nobody").password("wrong").build())
+                .exchange().expectStatus().isEqualTo(417);
+    }
+
+    @Test
+    void repeatedFailuresForOneAccountAreThrottled() {
+        webTestClient.post().uri("/api/auth/register").bodyValue(registration("dave"))
+                .exchange().expectStatus().isCreated();
+
+        // The account bucket holds 5 attempts by default, same as on the servlet service
+        for (int i = 0; i < 5; i++) {
+            webTestClient.post().uri("/api/auth/basic-login")
+                    .bodyValue(UserLoginRequestDto.builder().usernameOrEmail("dave").password("wrong").build())
+                    .exchange().expectStatus().isEqualTo(417);
+        }
+        webTestClient.post().uri("/api/auth/basic-login")
+                .bodyValue(UserLoginRequestDto.builder().usernameOrEmail("dave").password("password-1").build())
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().exists("Retry-After");
+    }
+
+    private static UserRegistrationRequestDto registration(String username) {
+        return UserRegistrationRequestDto.builder()
+                .firstName("Test")
+                .lastName("User")
+                .username(username)
+                .email(username + "@example.com")
+                .password("password-1")
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+-- The servlet service creates these tables through Hibernate, the test database starts empty
+CREATE TABLE IF NOT EXISTS role (
+    id INTEGER PRIMARY KEY,
+    role_name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id UUID PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    username VARCHAR(255) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    created_date DATE NOT NULL,
+    contact_number VARCHAR(15),
+    role_id INTEGER NOT NULL REFERENCES role (id)
+);
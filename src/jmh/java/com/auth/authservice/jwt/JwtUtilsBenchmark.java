@@ -0,0 +1,102 @@
+package com.auth.authservice.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sign and verify throughput of JwtUtils. The legacy* benchmarks reproduce the previous
+ * per-call key decoding and parser construction so both can be compared in one run,
+ * run with "-prof gc" (the profile default) to get the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtUtilsBenchmark {
+
+    private static final long EXPIRATION_MS = 3_600_000;
+
+    private String secret;
+    private JwtUtils jwtUtils;
+    private UserDetails user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] secretBytes = new byte[32];
+        new SecureRandom().nextBytes(secretBytes);
+        secret = Base64.getEncoder().encodeToString(secretBytes);
+
+        // HS256 mode needs no database, init() returns before touching the repository
+        SigningKeyManager signingKeyManager = new SigningKeyManager();
+        ReflectionTestUtils.setField(signingKeyManager, "algorithmName", "HS256");
+        signingKeyManager.init();
+
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "signingKeyManager", signingKeyManager);
+        ReflectionTestUtils.setField(jwtUtils, "secretKey", secret);
+        ReflectionTestUtils.setField(jwtUtils, "expirationInMs", EXPIRATION_MS);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtils.init();
+
+        user = User.builder()
+                .username("benchmark-user")
+                .password("")
+                .roles("USER")
+                .build();
+        token = jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public String verify() {
+        return jwtUtils.extractUsername(token);
+    }
+
+    @Benchmark
+    public String legacySign() {
+        Key signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret));
+        Date expirationDate = new Date(System.currentTimeMillis() + EXPIRATION_MS);
+
+        List<String> roles = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+
+        return Jwts.builder()
+                .setSubject(user.getUsername())
+                .claim("roles", roles)
+                .setIssuedAt(new Date())
+                .setExpiration(expirationDate)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public String legacyVerify() {
+        Key signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret));
+        return Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+}
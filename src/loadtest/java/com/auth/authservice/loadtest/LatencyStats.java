@@ -0,0 +1,69 @@
+package com.auth.authservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one operation. Each worker thread records into its own histogram,
+ * they are only merged when the report is written.
+ */
+class LatencyStats {
+
+    // Up to one minute at three significant digits, in microseconds
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<Thread, Histogram> histograms = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorsByCause = new ConcurrentHashMap<>();
+
+    void success(long elapsedNanos) {
+        histograms.computeIfAbsent(Thread.currentThread(), t -> new Histogram(HIGHEST_TRACKABLE_MICROS, 3))
+                .recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(elapsedNanos))));
+    }
+
+    void error(String cause) {
+        errors.increment();
+        errorsByCause.computeIfAbsent(cause, c -> new LongAdder()).increment();
+    }
+
+    Map<String, Object> report(double seconds) {
+        Histogram merged = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        histograms.values().forEach(merged::add);
+
+        long successes = merged.getTotalCount();
+        long failed = errors.sum();
+        long total = successes + failed;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("requests", total);
+        report.put("errors", failed);
+        report.put("errorRate", total == 0 ? 0.0 : (double) failed / total);
+        report.put("throughputPerSecond", round(successes / seconds));
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", millis(merged.getValueAtPercentile(50)));
+        latency.put("p90", millis(merged.getValueAtPercentile(90)));
+        latency.put("p99", millis(merged.getValueAtPercentile(99)));
+        latency.put("p999", millis(merged.getValueAtPercentile(99.9)));
+        latency.put("max", millis(merged.getMaxValue()));
+        latency.put("mean", round(merged.getMean() / 1000.0));
+        report.put("latencyMs", latency);
+        Map<String, Long> causes = new TreeMap<>();
+        errorsByCause.forEach((cause, count) -> causes.put(cause, count.sum()));
+        report.put("errorsByCause", causes);
+        return report;
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,397 @@
+package com.auth.authservice.loadtest;
+
+import com.auth.authservice.AuthserviceApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots the service in-process against a real database and a stubbed Google provider, then drives
+ * register, basic login and both Google code exchanges at a fixed concurrency. Throughput, latency
+ * percentiles and error rates per operation are written as JSON.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--concurrency=32 --duration-seconds=60"
+ * </pre>
+ *
+ * Options not listed in {@link #DEFAULTS} are handed to the application as property overrides,
+ * e.g. {@code --jwt.signing.algorithm=RS256}.
+ */
+public class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("concurrency", "16");
+        DEFAULTS.put("duration-seconds", "30");
+        DEFAULTS.put("warmup-seconds", "5");
+        DEFAULTS.put("scenarios", "register,login,google,gmail");
+        // Accounts shared by the login and Google scenarios, reused round robin
+        DEFAULTS.put("accounts", "200");
+        DEFAULTS.put("output", "target/loadtest/result.json");
+        DEFAULTS.put("db-url", "jdbc:postgresql://localhost:5432/postgres");
+        DEFAULTS.put("db-username", "postgres");
+        DEFAULTS.put("db-password", "postgres");
+    }
+
+    private static final String CLIENT_ID = "loadtest-client";
+    private static final String FRONTEND = "http://frontend.invalid";
+    private static final String PASSWORD = "LoadTest-password-1";
+
+    private final Map<String, String> options;
+    private final int concurrency;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private String baseUrl;
+    private Map<String, LatencyStats> stats;
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+        this.concurrency = Integer.parseInt(options.get("concurrency"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> overrides = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            (DEFAULTS.containsKey(key) ? options : overrides).put(key, value);
+        }
+
+        LoadTest loadTest = new LoadTest(options);
+        try (StubOAuthProvider provider = new StubOAuthProvider(CLIENT_ID, loadTest.concurrency)) {
+            ConfigurableApplicationContext context = SpringApplication.run(AuthserviceApplication.class,
+                    applicationArgs(options, overrides, provider.baseUrl()));
+            try {
+                loadTest.baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+                Map<String, Object> report = loadTest.run();
+                report.put("applicationOverrides", overrides);
+                report.put("activeProfiles", context.getEnvironment().getActiveProfiles());
+                // Boot only switches to virtual threads on Java 21 or later
+                report.put("virtualThreads", Runtime.version().feature() >= 21
+                        && context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false));
+                loadTest.write(report);
+            } finally {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static String[] applicationArgs(Map<String, String> options, Map<String, String> overrides, String provider) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", options.get("db-url"));
+        properties.put("spring.datasource.username", options.get("db-username"));
+        properties.put("spring.datasource.password", options.get("db-password"));
+        properties.put("spring.datasource.driver-class-name", "org.postgresql.Driver");
+        properties.put("jwt.secret", Base64.getEncoder().encodeToString(
+                "loadtest-secret-loadtest-secret-loadtest".getBytes(StandardCharsets.UTF_8)));
+        properties.put("jwt.expiration", "3600000");
+        properties.put("app.default.role", "USER");
+        properties.put("app.base.google.redirect.url", FRONTEND + "/google?jwt={jwt}");
+        properties.put("app.base.gmail.redirect.url", FRONTEND + "/gmail?gmail={gmail}");
+        properties.put("app.base.backend.redirect", "http://127.0.0.1");
+        // Every request comes from one address, the throttle would otherwise be what gets measured
+        properties.put("app.login-throttle.account.capacity", "1000000");
+        properties.put("app.login-throttle.account.refill-per-minute", "1000000");
+        properties.put("app.login-throttle.ip.capacity", "1000000");
+        properties.put("app.login-throttle.ip.refill-per-minute", "1000000");
+        properties.put("spring.security.oauth2.client.registration.google.client-id", CLIENT_ID);
+        properties.put("spring.security.oauth2.client.registration.google.client-secret", "loadtest-secret");
+        properties.put("spring.security.oauth2.client.registration.google.scope", "openid,email,profile");
+        properties.put("spring.security.oauth2.client.registration.google.redirect-uri", "{baseUrl}/login/oauth2/code/{registrationId}");
+        properties.put("spring.security.oauth2.client.registration.gmail.client-id", CLIENT_ID);
+        properties.put("spring.security.oauth2.client.registration.gmail.client-secret", "loadtest-secret");
+        properties.put("spring.security.oauth2.client.registration.gmail.redirect-uri", "{baseUrl}/login/oauth2/code/{registrationId}");
+        // Replaces the built-in Google issuer, ID tokens are validated against it
+        properties.put("spring.security.oauth2.client.provider.google.issuer-uri", provider);
+        properties.put("spring.security.oauth2.client.provider.google.authorization-uri", provider + "/authorize");
+        properties.put("spring.security.oauth2.client.provider.google.token-uri", provider + "/token");
+        properties.put("spring.security.oauth2.client.provider.google.user-info-uri", provider + "/userinfo");
+        properties.put("spring.security.oauth2.client.provider.google.jwk-set-uri", provider + "/jwks");
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(overrides);
+
+        List<String> args = new ArrayList<>();
+        properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+        return args.toArray(String[]::new);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        List<String> accounts = new ArrayList<>();
+        int accountCount = Integer.parseInt(options.get("accounts"));
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add("lt-" + runId + "-" + i);
+        }
+
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        for (String scenario : options.get("scenarios").split(",")) {
+            Operation operation = switch (scenario.trim()) {
+                case "register" -> this::register;
+                case "login" -> {
+                    prepareAccounts(accounts);
+                    yield () -> login(pick(accounts));
+                }
+                case "google" -> () -> googleCodeExchange("google", "/google/jwt-token", "jwt", pick(accounts));
+                case "gmail" -> () -> googleCodeExchange("gmail", "/google/gmail-tokens", "gmail", pick(accounts));
+                default -> throw new IllegalArgumentException("Unknown scenario " + scenario);
+            };
+            scenarios.put(scenario.trim(), runScenario(scenario.trim(), operation));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now().toString());
+        report.put("options", options);
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("javaVersion", Runtime.version().toString());
+        report.put("scenarios", scenarios);
+        return report;
+    }
+
+    private Map<String, Object> runScenario(String name, Operation operation) throws Exception {
+        long warmupSeconds = Long.parseLong(options.get("warmup-seconds"));
+        long durationSeconds = Long.parseLong(options.get("duration-seconds"));
+
+        System.out.printf("%s: warming up for %ds%n", name, warmupSeconds);
+        drive(operation, warmupSeconds);
+        System.out.printf("%s: measuring for %ds at concurrency %d%n", name, durationSeconds, concurrency);
+        long started = System.nanoTime();
+        Map<String, Object> resources;
+        try (ResourceSampler sampler = new ResourceSampler(100)) {
+            drive(operation, durationSeconds);
+            resources = sampler.report();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        stats.forEach((operationName, operationStats) -> operations.put(operationName, operationStats.report(elapsed)));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("durationSeconds", Math.round(elapsed * 1000) / 1000.0);
+        result.put("operations", operations);
+        result.put("resources", resources);
+        return result;
+    }
+
+    // Statistics are reset per phase, so the warmup never ends up in the report
+    private void drive(Operation operation, long seconds) throws Exception {
+        stats = new ConcurrentHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                running.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        try {
+                            operation.run();
+                        } catch (StepFailedException e) {
+                            // Already counted against the step that failed
+                        } catch (Exception e) {
+                            stats("iteration").error(e.getClass().getSimpleName());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void register() throws Exception {
+        String name = "lt-" + runId + "-" + UUID.randomUUID();
+        post("register", "/api/auth/register", registration(name), 201);
+    }
+
+    private void login(String name) throws Exception {
+        post("login", "/api/auth/basic-login",
+                "{\"usernameOrEmail\":\"" + name + "\",\"password\":\"" + PASSWORD + "\"}", 200);
+    }
+
+    // Registered outside the measured phases, a 409 means an earlier scenario already created the account
+    private void prepareAccounts(List<String> accounts) throws Exception {
+        System.out.printf("login: registering %d accounts%n", accounts.size());
+        // Not measured, kept within what the hashing pool absorbs so no request outlives the async timeout
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(concurrency, 2 * Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (String account : accounts) {
+                responses.add(workers.submit(() -> {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(registration(account)))
+                            .build();
+                    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                    // At high concurrency the hashing queue fills up, the service asks us to come back
+                    while (response.statusCode() == 503) {
+                        Thread.sleep(100);
+                        response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                    }
+                    return response;
+                }));
+            }
+            for (Future<HttpResponse<String>> response : responses) {
+                int status = response.get().statusCode();
+                if (status != 201 && status != 409) {
+                    throw new IllegalStateException("Could not register load test account, status " + status);
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * One complete browser round trip: start the authorization request, let the stub provider sign
+     * the user in, deliver the callback and finally redeem the one-time code the service handed out.
+     */
+    private void googleCodeExchange(String registration, String exchangePath, String codeParameter, String account) throws Exception {
+        String email = account + "@loadtest.invalid";
+
+        HttpResponse<String> authorization = get(registration + ".authorize",
+                "/oauth2/authorization/" + registration, null, 302, null);
+        String cookie = cookies(authorization);
+
+        // Time spent in the stub itself, reported so it can be told apart from the service's own latency
+        HttpResponse<String> providerResponse = get(registration + ".provider", location(authorization)
+                + "&login_hint=" + URLEncoder.encode(email, StandardCharsets.UTF_8), null, 302, baseUrl);
+        String callback = location(providerResponse);
+
+        // A failed login is a 302 as well, only one back to the frontend counts as success
+        HttpResponse<String> callbackResponse = get(registration + ".callback", callback, cookie, 302, FRONTEND);
+        String redirect = location(callbackResponse);
+        String code = redirect.substring(redirect.indexOf(codeParameter + "=") + codeParameter.length() + 1);
+
+        get(registration + "." + exchangePath.substring(exchangePath.lastIndexOf('/') + 1),
+                exchangePath + "?code=" + code, null, 200, null);
+    }
+
+    private HttpResponse<String> get(String operation, String pathOrUrl, String cookie,
+                                     int expectedStatus, String expectedRedirect) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(pathOrUrl.startsWith("http") ? pathOrUrl : baseUrl + pathOrUrl)).GET();
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        return send(operation, request.build(), expectedStatus, expectedRedirect);
+    }
+
+    private HttpResponse<String> post(String operation, String path, String json, int expectedStatus) throws Exception {
+        return send(operation, HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), expectedStatus, null);
+    }
+
+    private HttpResponse<String> send(String operation, HttpRequest request,
+                                      int expectedStatus, String expectedRedirect) throws Exception {
+        LatencyStats operationStats = stats(operation);
+        long started = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            operationStats.error(e.getClass().getSimpleName());
+            throw new StepFailedException();
+        }
+        long elapsed = System.nanoTime() - started;
+        if (response.statusCode() != expectedStatus) {
+            operationStats.error("status-" + response.statusCode());
+            throw new StepFailedException();
+        }
+        if (expectedRedirect != null) {
+            String redirect = response.headers().firstValue("Location").orElse("");
+            if (!redirect.startsWith(expectedRedirect)) {
+                operationStats.error("redirect-" + URI.create(redirect).getPath());
+                throw new StepFailedException();
+            }
+        }
+        operationStats.success(elapsed);
+        return response;
+    }
+
+    private LatencyStats stats(String operation) {
+        return stats.computeIfAbsent(operation, o -> new LatencyStats());
+    }
+
+    private void write(Map<String, Object> report) throws Exception {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Path output = Path.of(options.get("output"));
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        mapper.writeValue(output.toFile(), report);
+        System.out.println(mapper.writeValueAsString(report));
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    private static String registration(String name) {
+        return "{\"firstName\":\"Load\",\"lastName\":\"Test\",\"username\":\"" + name
+                + "\",\"password\":\"" + PASSWORD + "\",\"email\":\"" + name
+                + "@loadtest.invalid\",\"contactNumber\":\"0000000000\"}";
+    }
+
+    private static String pick(List<String> accounts) {
+        return accounts.get(ThreadLocalRandom.current().nextInt(accounts.size()));
+    }
+
+    private static String location(HttpResponse<?> response) {
+        return response.headers().firstValue("Location")
+                .orElseThrow(() -> new IllegalStateException("No redirect from " + response.uri()));
+    }
+
+    // Whatever the service keeps the pending authorization request in, session or cookie, goes back with the callback
+    private static String cookies(HttpResponse<?> response) {
+        List<String> cookies = response.headers().allValues("Set-Cookie").stream()
+                .map(header -> header.split(";", 2)[0])
+                .toList();
+        return cookies.isEmpty() ? null : String.join("; ", cookies);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    // Thrown once a failed step has been recorded, ends the iteration without counting it twice
+    private static class StepFailedException extends RuntimeException {
+        StepFailedException() {
+            super(null, null, false, false);
+        }
+    }
+}
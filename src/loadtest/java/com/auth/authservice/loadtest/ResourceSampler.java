@@ -0,0 +1,82 @@
+package com.auth.authservice.loadtest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples heap, resident memory and platform threads while a phase runs. The service and the load
+ * generator share the JVM, so the numbers cover both; the generator's share is the same in every mode.
+ */
+class ResourceSampler implements AutoCloseable {
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "resource-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long samples;
+    private long heapUsedSum;
+    private long heapUsedMax;
+    private long rssMax = -1;
+    private int platformThreadsMax;
+
+    ResourceSampler(long intervalMs) {
+        threads.resetPeakThreadCount();
+        sampler.scheduleAtFixedRate(this::sample, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sample() {
+        long heapUsed = memory.getHeapMemoryUsage().getUsed();
+        samples++;
+        heapUsedSum += heapUsed;
+        heapUsedMax = Math.max(heapUsedMax, heapUsed);
+        rssMax = Math.max(rssMax, residentSetBytes());
+        platformThreadsMax = Math.max(platformThreadsMax, threads.getThreadCount());
+    }
+
+    synchronized Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("heapUsedMeanMb", megabytes(samples == 0 ? 0 : heapUsedSum / samples));
+        report.put("heapUsedMaxMb", megabytes(heapUsedMax));
+        report.put("residentSetMaxMb", rssMax < 0 ? null : megabytes(rssMax));
+        report.put("platformThreadsMax", Math.max(platformThreadsMax, threads.getPeakThreadCount()));
+        return report;
+    }
+
+    // Linux only, -1 elsewhere
+    private static long residentSetBytes() {
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not available on this platform
+        }
+        return -1;
+    }
+
+    private static double megabytes(long bytes) {
+        return Math.round(bytes / 1024.0 / 1024.0 * 10) / 10.0;
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+}
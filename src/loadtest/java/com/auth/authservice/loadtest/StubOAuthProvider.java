@@ -0,0 +1,184 @@
+package com.auth.authservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal OpenID Connect provider standing in for Google: authorize, token, userinfo and JWKS.
+ * Authorization requests pass the account's email as login_hint, the stub logs everyone in without a prompt.
+ */
+public class StubOAuthProvider implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer server;
+    private final RSAKey signingKey;
+    private final String clientId;
+    private final Map<String, PendingCode> codes = new ConcurrentHashMap<>();
+    private final Map<String, String> accessTokens = new ConcurrentHashMap<>();
+
+    public StubOAuthProvider(String clientId, int threads) throws IOException, JOSEException {
+        this.clientId = clientId;
+        this.signingKey = new RSAKeyGenerator(2048).keyID("stub").generate();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.createContext("/authorize", this::authorize);
+        server.createContext("/token", this::token);
+        server.createContext("/userinfo", this::userInfo);
+        server.createContext("/jwks", this::jwks);
+        server.createContext("/.well-known/openid-configuration", this::discovery);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void authorize(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parse(exchange.getRequestURI().getRawQuery());
+        String code = UUID.randomUUID().toString();
+        codes.put(code, new PendingCode(params.get("login_hint"), params.get("nonce")));
+
+        String location = params.get("redirect_uri") + "?code=" + code
+                + "&state=" + URLEncoder.encode(params.get("state"), StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parse(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        PendingCode pending = codes.remove(params.get("code"));
+        if (pending == null) {
+            respond(exchange, 400, Map.of("error", "invalid_grant"));
+            return;
+        }
+
+        String accessToken = UUID.randomUUID().toString();
+        accessTokens.put(accessToken, pending.email());
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("access_token", accessToken);
+        body.put("token_type", "Bearer");
+        body.put("expires_in", 3600);
+        body.put("refresh_token", UUID.randomUUID().toString());
+        body.put("id_token", idToken(pending));
+        respond(exchange, 200, body);
+    }
+
+    private void userInfo(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String email = authorization == null ? null : accessTokens.get(authorization.substring("Bearer ".length()));
+        if (email == null) {
+            respond(exchange, 401, Map.of("error", "invalid_token"));
+            return;
+        }
+        respond(exchange, 200, Map.of("sub", subject(email), "email", email, "email_verified", true,
+                "name", email.substring(0, email.indexOf('@'))));
+    }
+
+    // Only read once at startup, the service is configured with the stub as issuer
+    private void discovery(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("issuer", baseUrl());
+        body.put("authorization_endpoint", baseUrl() + "/authorize");
+        body.put("token_endpoint", baseUrl() + "/token");
+        body.put("userinfo_endpoint", baseUrl() + "/userinfo");
+        body.put("jwks_uri", baseUrl() + "/jwks");
+        body.put("response_types_supported", List.of("code"));
+        body.put("subject_types_supported", List.of("public"));
+        body.put("id_token_signing_alg_values_supported", List.of("RS256"));
+        respond(exchange, 200, body);
+    }
+
+    private void jwks(HttpExchange exchange) throws IOException {
+        byte[] body = new JWKSet(signingKey.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String idToken(PendingCode pending) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(baseUrl())
+                .subject(subject(pending.email()))
+                .audience(clientId)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(3600)))
+                .claim("nonce", pending.nonce())
+                .claim("email", pending.email())
+                .claim("email_verified", true)
+                .build();
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(signingKey));
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String subject(String email) {
+        return Integer.toHexString(email.hashCode());
+    }
+
+    private static void respond(HttpExchange exchange, int status, Map<String, ?> body) throws IOException {
+        byte[] bytes = JSON.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parse(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((java.util.concurrent.ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    private record PendingCode(String email, String nonce) {
+    }
+}
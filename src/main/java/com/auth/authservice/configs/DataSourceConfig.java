@@ -0,0 +1,78 @@
+package com.auth.authservice.configs;
+
+import com.auth.authservice.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The primary pool from spring.datasource.*, plus one pool per app.datasource.replicas.urls entry.
+ * With no replicas the primary pool is the DataSource, exactly as Spring Boot would build it.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Value("${app.datasource.replicas.urls:}")
+    private List<String> replicaUrls;
+
+    @Value("${app.datasource.replicas.username:}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replicas.password:}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replicas.maximum-pool-size:10}")
+    private int replicaMaxPoolSize;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool(properties, environment, properties.determineUrl(),
+                properties.determineUsername(), properties.determinePassword(), "primary");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = pool(properties, environment, url.trim(),
+                    replicaUsername.isBlank() ? properties.determineUsername() : replicaUsername,
+                    replicaPassword.isBlank() ? properties.determinePassword() : replicaPassword,
+                    "replica-" + replicas.size());
+            replica.setMaximumPoolSize(replicaMaxPoolSize);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+
+        // Boot only instruments the pool it can unwrap, so every pool reports hikaricp.* itself
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        replicas.forEach(replica -> replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry)));
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Environment environment,
+                                         String url, String username, String password, String poolName) {
+        HikariDataSource dataSource = new HikariDataSource();
+        // spring.datasource.hikari.* applies to every pool
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+}
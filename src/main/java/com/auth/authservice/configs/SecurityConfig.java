@@ -1,8 +1,13 @@
 package com.auth.authservice.configs;
 
+import com.auth.authservice.enums.UserRole;
+import com.auth.authservice.google.CookieAuthorizationRequestRepository;
 import com.auth.authservice.google.GmailOAuth2SuccessHandler;
 import com.auth.authservice.google.OAuth2AuthenticationSuccessHandler;
+import com.auth.authservice.jwt.JwtAuthenticationFilter;
+import com.auth.authservice.jwt.TokenVerifier;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -14,7 +19,10 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 
 import java.util.List;
@@ -26,6 +34,8 @@ public class SecurityConfig {
 
     private final OAuth2AuthenticationSuccessHandler googleOAuth2SuccessHandler;
     private final GmailOAuth2SuccessHandler gmailOAuth2SuccessHandler;
+    private final TokenVerifier tokenVerifier;
+    private final CookieAuthorizationRequestRepository authorizationRequestRepository;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -40,12 +50,21 @@ public class SecurityConfig {
                 }))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/google/gmail-access-token").authenticated()
+                        // Rejected before the body is read, anonymous callers cannot make it verify tokens
+                        .requestMatchers("/api/auth/introspect").hasRole(UserRole.INTROSPECT.name())
                         .requestMatchers("/api/auth/**", "/google/**", "/login/**", "/oauth2/**", "/error").permitAll()
+                        .requestMatchers("/actuator/health", "/.well-known/jwks.json").permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .anyRequest().authenticated()
                 )
-                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED))
+                // The only per-login state, the pending authorization request, lives in a cookie
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new JwtAuthenticationFilter(tokenVerifier), UsernamePasswordAuthenticationFilter.class)
                 .oauth2Login(oauth2 -> oauth2
+                        .authorizationEndpoint(endpoint -> endpoint
+                                .authorizationRequestRepository(authorizationRequestRepository))
+                        .failureHandler(oauth2FailureHandler())
                         .successHandler((request, response, authentication) -> {
                             OAuth2AuthenticationToken token = (OAuth2AuthenticationToken) authentication;
                             String registrationId = token.getAuthorizedClientRegistrationId();
@@ -64,6 +83,22 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // The default handler keeps the exception in a new session for the login page to show
+    private static SimpleUrlAuthenticationFailureHandler oauth2FailureHandler() {
+        SimpleUrlAuthenticationFailureHandler failureHandler = new SimpleUrlAuthenticationFailureHandler("/login?error");
+        failureHandler.setAllowSessionCreation(false);
+        return failureHandler;
+    }
+
+    // Picked up by oauth2Login. Google's ID token already carries email, name and picture, so by default
+    // identity comes from the verified token alone and the callback skips the blocking userinfo call
+    @Bean
+    public OidcUserService oidcUserService(@Value("${app.oauth2.userinfo.enabled:false}") boolean userInfoEnabled) {
+        OidcUserService oidcUserService = new OidcUserService();
+        oidcUserService.setRetrieveUserInfo(userRequest -> userInfoEnabled);
+        return oidcUserService;
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
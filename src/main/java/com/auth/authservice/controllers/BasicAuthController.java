@@ -1,6 +1,7 @@
 package com.auth.authservice.controllers;
 
 import com.auth.authservice.dto.BuildFailureResponse;
+import com.auth.authservice.dto.requestDto.RefreshTokenRequestDto;
 import com.auth.authservice.dto.requestDto.UserLoginRequestDto;
 import com.auth.authservice.dto.requestDto.UserRegistrationRequestDto;
 import com.auth.authservice.dto.responseDto.LoginResponseDto;
@@ -8,11 +9,21 @@ import com.auth.authservice.dto.responseDto.UserRegistrationMessage;
 import com.auth.authservice.dto.responseDto.UserRegistrationResponseDto;
 import com.auth.authservice.entities.Users;
 import com.auth.authservice.services.AuthService;
+import com.auth.authservice.services.LoginThrottleService;
+import com.auth.authservice.services.RefreshTokenService;
+import com.auth.authservice.services.PasswordHashingService;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @RestController
 @RequestMapping("api/auth")
 public class BasicAuthController {
@@ -23,46 +34,122 @@ public class BasicAuthController {
     @Autowired
     BuildFailureResponse buildFailureResponse;
 
+    @Autowired
+    LoginThrottleService loginThrottleService;
+
     @PostMapping("/register")
-    public ResponseEntity<UserRegistrationResponseDto> userRegistration(
+    public CompletableFuture<ResponseEntity<UserRegistrationResponseDto>> userRegistration(
             @RequestBody UserRegistrationRequestDto userRegistrationRequestDto) {
 
         try {
-            Users userInfo = authService.register(userRegistrationRequestDto);
-            UserRegistrationMessage message = UserRegistrationMessage.builder()
-                    .message("User has been registered")
-                    .createdDate(userInfo.getCreatedDate())
-                    .success(true)
-                    .build();
-
-            UserRegistrationResponseDto response =  UserRegistrationResponseDto.builder()
-                    .id(userInfo.getId().toString())
-                    .username(userInfo.getUsername())
-                    .email(userInfo.getEmail())
-                    .role(userInfo.getRole().getRoleName().name())
-                    .data(message)
-                    .build();
-
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
-
-        } catch (AuthService.UserAlreadyExistsException ex) {
-            return ResponseEntity.status(HttpStatus.CONFLICT)
-                    .body(buildFailureResponse.registrationBuildFailureResponse(userRegistrationRequestDto, "User already exists"));
+            return authService.register(userRegistrationRequestDto)
+                    .thenApply(userInfo -> {
+                        UserRegistrationMessage message = UserRegistrationMessage.builder()
+                                .message("User has been registered")
+                                .createdDate(userInfo.getCreatedDate())
+                                .success(true)
+                                .build();
 
+                        UserRegistrationResponseDto response =  UserRegistrationResponseDto.builder()
+                                .id(userInfo.getId().toString())
+                                .username(userInfo.getUsername())
+                                .email(userInfo.getEmail())
+                                .role(userInfo.getRole().getRoleName().name())
+                                .data(message)
+                                .build();
+
+                        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+                    })
+                    .exceptionally(ex -> registrationFailure(userRegistrationRequestDto, ex));
         } catch (Exception ex) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(buildFailureResponse.registrationBuildFailureResponse(userRegistrationRequestDto, "Registration failed. Please try again."));
+            return CompletableFuture.completedFuture(registrationFailure(userRegistrationRequestDto, ex));
         }
     }
 
     @PostMapping("/basic-login")
-    public ResponseEntity<LoginResponseDto> userBasicLogin(@RequestBody UserLoginRequestDto userLoginRequestDto){
+    public CompletableFuture<ResponseEntity<LoginResponseDto>> userBasicLogin(@RequestBody UserLoginRequestDto userLoginRequestDto,
+                                                                          HttpServletRequest request){
         try{
-            LoginResponseDto response = authService.basicLogin(userLoginRequestDto);
-            return ResponseEntity.status(HttpStatus.OK).body(response);
+            // Rejected here, before any lookup or hashing work is spent on the attempt
+            loginThrottleService.checkLogin(userLoginRequestDto.getUsernameOrEmail(), request.getRemoteAddr());
+            return authService.basicLogin(userLoginRequestDto)
+                    .thenApply(response -> ResponseEntity.status(HttpStatus.OK).body(response))
+                    .exceptionally(ex -> loginFailure(userLoginRequestDto, ex));
         }catch (Exception e){
-            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED).body(buildFailureResponse.loginBuildFailureResponse(userLoginRequestDto.getUsernameOrEmail(), "Login failed"));
+            return CompletableFuture.completedFuture(loginFailure(userLoginRequestDto, e));
+        }
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponseDto> refreshToken(@RequestBody RefreshTokenRequestDto refreshTokenRequestDto){
+        try{
+            return ResponseEntity.ok(authService.refresh(refreshTokenRequestDto));
+        }catch (RefreshTokenService.InvalidRefreshTokenException e){
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(buildFailureResponse.loginBuildFailureResponse("", "Invalid refresh token"));
+        }catch (Exception e){
+            return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED)
+                    .body(buildFailureResponse.loginBuildFailureResponse("", "Token refresh failed"));
+        }
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization){
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        try{
+            authService.logout(authorization.substring("Bearer ".length()).trim());
+            return ResponseEntity.noContent().build();
+        }catch (JwtException | IllegalArgumentException e){
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    private ResponseEntity<UserRegistrationResponseDto> registrationFailure(UserRegistrationRequestDto requestDto, Throwable ex) {
+        Throwable cause = unwrap(ex);
+        if (cause instanceof AuthService.UserAlreadyExistsException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(buildFailureResponse.registrationBuildFailureResponse(requestDto, "User already exists"));
+        }
+        if (isBusy(cause)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(buildFailureResponse.registrationBuildFailureResponse(requestDto, "Service busy. Please try again."));
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(buildFailureResponse.registrationBuildFailureResponse(requestDto, "Registration failed. Please try again."));
+    }
+
+    private ResponseEntity<LoginResponseDto> loginFailure(UserLoginRequestDto requestDto, Throwable ex) {
+        Throwable cause = unwrap(ex);
+        if (cause instanceof LoginThrottleService.TooManyAttemptsException throttled) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(throttled.getRetryAfterSeconds()))
+                    .body(buildFailureResponse.loginBuildFailureResponse(requestDto.getUsernameOrEmail(), "Too many attempts"));
+        }
+        if (isBusy(cause)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(buildFailureResponse.loginBuildFailureResponse(requestDto.getUsernameOrEmail(), "Service busy"));
+        }
+        return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED)
+                .body(buildFailureResponse.loginBuildFailureResponse(requestDto.getUsernameOrEmail(), "Login failed"));
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    // The hashing queue is full, or no pooled connection freed up within the connection timeout
+    private static boolean isBusy(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof PasswordHashingService.HashingCapacityExceededException
+                    || t instanceof SQLTransientConnectionException) {
+                return true;
+            }
         }
+        return false;
     }
 
 }
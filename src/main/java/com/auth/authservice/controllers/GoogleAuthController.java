@@ -1,13 +1,20 @@
 package com.auth.authservice.controllers;
 
 import com.auth.authservice.dto.BuildFailureResponse;
+import com.auth.authservice.dto.responseDto.GmailAccessTokenDto;
 import com.auth.authservice.dto.responseDto.LoginResponseDto;
+import com.auth.authservice.jwt.VerifiedTokenCache;
+import com.auth.authservice.services.GmailTokenService;
 import com.auth.authservice.services.GoogleAuthService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+@Slf4j
 @RestController
 @RequestMapping("/google")
 public class GoogleAuthController {
@@ -44,7 +51,7 @@ public class GoogleAuthController {
     public ResponseEntity<LoginResponseDto> getGmailTokens(@RequestParam String code){
         try{
             LoginResponseDto tokenInfo = googleAuthService.getGmailTokens(code);
-            System.out.println("TokenInfo:" + tokenInfo);
+            log.debug("Gmail tokens retrieved for {}", tokenInfo.getUsername());
             if (tokenInfo.getToken() == null) {
                 throw new RuntimeException("Something went wrong.");
             }
@@ -54,5 +61,19 @@ public class GoogleAuthController {
                     .body(buildFailureResponse.loginBuildFailureResponse("", "google login failed"));
         }
     }
-}
 
+    // A current Gmail access token for the signed-in user, refreshed on the server as needed
+    @GetMapping("/gmail-access-token")
+    public ResponseEntity<GmailAccessTokenDto> getGmailAccessToken(@AuthenticationPrincipal VerifiedTokenCache.VerifiedToken principal){
+        try{
+            return ResponseEntity.ok(googleAuthService.getGmailAccessToken(principal));
+        }catch (AccessDeniedException e){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }catch (GmailTokenService.GrantNotFoundException e){
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }catch (GmailTokenService.TokenRefreshFailedException e){
+            log.warn(e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
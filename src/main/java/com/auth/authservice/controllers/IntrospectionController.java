@@ -0,0 +1,36 @@
+package com.auth.authservice.controllers;
+
+import com.auth.authservice.dto.requestDto.IntrospectionRequestDto;
+import com.auth.authservice.services.TokenIntrospectionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("api/auth")
+public class IntrospectionController {
+
+    @Autowired
+    TokenIntrospectionService tokenIntrospectionService;
+
+    // Returns one result per token, in request order
+    @PostMapping("/introspect")
+    public ResponseEntity<StreamingResponseBody> introspect(@RequestBody IntrospectionRequestDto introspectionRequestDto){
+        try{
+            tokenIntrospectionService.checkBatchSize(introspectionRequestDto.getTokens());
+        }catch (TokenIntrospectionService.BatchTooLargeException e){
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }catch (TokenIntrospectionService.InvalidBatchException e){
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> tokenIntrospectionService.introspect(introspectionRequestDto.getTokens(), out));
+    }
+}
@@ -0,0 +1,32 @@
+package com.auth.authservice.controllers;
+
+import com.auth.authservice.jwt.SigningKeyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+@RestController
+public class JwksController {
+
+    @Autowired
+    SigningKeyManager signingKeyManager;
+
+    @Value("${jwt.jwks.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    // Spring answers If-None-Match with 304 because the response carries an ETag
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks() {
+        SigningKeyManager.Jwks jwks = signingKeyManager.jwks();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic())
+                .eTag(jwks.etag())
+                .body(jwks.json());
+    }
+}
@@ -0,0 +1,82 @@
+package com.auth.authservice.crypto;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Authenticated encryption for secrets the service has to keep at rest. The output is the random
+ * 12 byte IV followed by the ciphertext and tag. Associated data binds a ciphertext to its owner,
+ * so it cannot be copied to another row or cookie.
+ */
+@Component
+public class AesGcmCipher {
+
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKey key;
+
+    // Without a dedicated key one is derived from jwt.secret, rotating either makes existing ciphertexts unreadable
+    public AesGcmCipher(@Value("${app.encryption.key:}") String encodedKey,
+                        @Value("${jwt.secret}") String jwtSecret) {
+        byte[] keyBytes = encodedKey.isBlank()
+                ? sha256("authservice-encryption:" + jwtSecret)
+                : Base64.getDecoder().decode(encodedKey);
+        this.key = new SecretKeySpec(keyBytes, "AES");
+    }
+
+    public byte[] encrypt(byte[] plaintext, byte[] associatedData) {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(associatedData);
+            byte[] ciphertext = cipher.doFinal(plaintext);
+            return ByteBuffer.allocate(IV_LENGTH + ciphertext.length).put(iv).put(ciphertext).array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Encryption failed", e);
+        }
+    }
+
+    // Throws DecryptionException when the data was tampered with or encrypted under another key
+    public byte[] decrypt(byte[] data, byte[] associatedData) {
+        if (data.length <= IV_LENGTH) {
+            throw new DecryptionException("Ciphertext is too short");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+            cipher.updateAAD(associatedData);
+            return cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new DecryptionException("Decryption failed");
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class DecryptionException extends RuntimeException {
+        public DecryptionException(String message) {
+            super(message);
+        }
+    }
+}
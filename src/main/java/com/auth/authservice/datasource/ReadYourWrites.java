@@ -0,0 +1,59 @@
+package com.auth.authservice.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Keeps lookups consistent with recent writes while reads go to replicas. Identifiers written on this
+ * instance are read from the primary for a short window, everything else is answered by a replica,
+ * including "not found". Without replicas configured every method simply runs the query.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final boolean replicasEnabled;
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWrites(@Value("${app.datasource.replicas.urls:}") List<String> replicaUrls,
+                          @Value("${app.datasource.read-your-writes-ms:5000}") long windowMs,
+                          @Value("${app.datasource.read-your-writes-max-entries:100000}") long maxEntries) {
+        this.replicasEnabled = replicaUrls.stream().anyMatch(url -> !url.isBlank());
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(windowMs))
+                .build();
+    }
+
+    public void recordWrite(String... identifiers) {
+        if (!replicasEnabled) {
+            return;
+        }
+        for (String identifier : identifiers) {
+            if (identifier != null) {
+                recentWrites.put(identifier, Boolean.TRUE);
+            }
+        }
+    }
+
+    public <T> Optional<T> find(String identifier, Supplier<Optional<T>> query) {
+        if (!replicasEnabled) {
+            return query.get();
+        }
+        if (recentWrites.getIfPresent(identifier) != null) {
+            return ReplicaRoutingDataSource.onPrimary(query);
+        }
+        // An empty answer is final, retrying it on the primary would send every unknown identifier there
+        return query.get();
+    }
+
+    public <T> T onPrimary(Supplier<T> work) {
+        return ReplicaRoutingDataSource.onPrimary(work);
+    }
+}
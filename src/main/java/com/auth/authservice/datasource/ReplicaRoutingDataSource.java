@@ -0,0 +1,82 @@
+package com.auth.authservice.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replica pools, round robin, and everything else to the primary.
+ * The physical connection is only fetched on the first statement, once the transaction's read-only
+ * flag is known, so repository reads (read-only by default) land on a replica and writes never do.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas) {
+        pools.add(primary);
+        pools.addAll(replicas);
+
+        Router router = new Router(primary, replicas);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        afterPropertiesSet();
+    }
+
+    // Runs the work against the primary even inside read-only transactions it starts
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (FORCE_PRIMARY.get() != null) {
+            return work.get();
+        }
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            FORCE_PRIMARY.remove();
+        }
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private static final class Router extends AbstractRoutingDataSource {
+
+        private final List<String> replicaKeys = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        Router(HikariDataSource primary, List<HikariDataSource> replicas) {
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(PRIMARY, primary);
+            for (int i = 0; i < replicas.size(); i++) {
+                String key = "replica-" + i;
+                replicaKeys.add(key);
+                targets.put(key, replicas.get(i));
+            }
+            setTargetDataSources(targets);
+            setDefaultTargetDataSource(primary);
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (replicaKeys.isEmpty() || FORCE_PRIMARY.get() != null
+                    || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return PRIMARY;
+            }
+            return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+        }
+    }
+}
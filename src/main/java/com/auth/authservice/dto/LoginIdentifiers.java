@@ -0,0 +1,10 @@
+package com.auth.authservice.dto;
+
+import java.time.Instant;
+
+// Username/email pair read by the streaming scans that build the identifier filter
+public interface LoginIdentifiers {
+    String getUsername();
+    String getEmail();
+    Instant getCreatedAt();
+}
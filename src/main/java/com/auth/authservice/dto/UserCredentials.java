@@ -0,0 +1,7 @@
+package com.auth.authservice.dto;
+
+import com.auth.authservice.enums.UserRole;
+
+// Everything a login needs from Users and Role, loaded by a single joined query. Immutable, instances are shared through the user cache
+public record UserCredentials(String username, String email, String password, UserRole roleName) {
+}
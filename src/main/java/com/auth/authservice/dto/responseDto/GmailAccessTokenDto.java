@@ -0,0 +1,14 @@
+package com.auth.authservice.dto.responseDto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@Builder
+public class GmailAccessTokenDto {
+    private String email;
+    private String accessToken;
+    private Date expiresAt;
+}
@@ -0,0 +1,20 @@
+package com.auth.authservice.dto.responseDto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// Field names follow RFC 7662, inactive tokens carry nothing but active=false
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospectionDto {
+    private boolean active;
+    private String sub;
+    private List<String> roles;
+    // Seconds since the epoch
+    private Long exp;
+    private String jti;
+}
@@ -0,0 +1,40 @@
+package com.auth.authservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// A user's Gmail authorization, both tokens AES-GCM encrypted with the email as associated data
+@Entity
+@Table(name = "gmail_grants", indexes = @Index(name = "idx_gmail_grants_access_token_expires_at", columnList = "accessTokenExpiresAt"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GmailGrant {
+
+    @Id
+    private String email;
+
+    @Column(nullable = false)
+    private byte[] accessToken;
+
+    @Column(nullable = false)
+    private Instant accessTokenExpiresAt;
+
+    private byte[] refreshToken;
+
+    @Column(length = 1000)
+    private String scopes;
+
+    // Only grants used within app.gmail.active-window-ms are refreshed ahead of expiry
+    @Column(nullable = false)
+    private Instant lastUsedAt;
+
+    // Set by the node that is refreshing the grant, so the others skip it
+    private Instant refreshClaimedUntil;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
@@ -7,7 +7,7 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
-@Table(name = "google-users")
+@Table(name = "google-users", indexes = @Index(name = "idx_google_users_created_at", columnList = "createdAt"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -30,4 +30,9 @@ public class GoogleUsers {
     @Column(nullable = false)
     private LocalDate createdDate;
 
+    // Set by the database on insert, whichever service writes the row. Cursor for the identifier filter's rescans
+    @Column(nullable = false, insertable = false, updatable = false,
+            columnDefinition = "timestamp(6) with time zone default now() not null")
+    private Instant createdAt;
+
 }
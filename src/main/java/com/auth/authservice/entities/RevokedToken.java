@@ -0,0 +1,29 @@
+package com.auth.authservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revokedAt"),
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expiresAt")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RevokedToken {
+
+    // The jti claim of the revoked access token
+    @Id
+    private String jti;
+
+    // When the token would have expired anyway, after that the row is useless
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false)
+    private Instant revokedAt;
+}
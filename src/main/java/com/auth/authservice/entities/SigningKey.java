@@ -0,0 +1,43 @@
+package com.auth.authservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "jwt_signing_keys", indexes = {
+        @Index(name = "idx_jwt_signing_keys_expires_at", columnList = "expiresAt")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SigningKey {
+
+    // Published as the kid header and in the JWKS
+    @Id
+    private String kid;
+
+    @Column(nullable = false, length = 10)
+    private String algorithm;
+
+    // X.509 encoded
+    @Column(nullable = false)
+    private byte[] publicKey;
+
+    // PKCS#8 encoded, AES-GCM encrypted with the kid as associated data
+    @Column(nullable = false)
+    private byte[] privateKey;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // Published before this instant so cached key sets already contain it once tokens are signed with it
+    @Column(nullable = false)
+    private Instant activatesAt;
+
+    // Last tokens signed with the key have expired by now, it is dropped from the key set
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
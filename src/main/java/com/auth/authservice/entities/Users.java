@@ -4,12 +4,13 @@ import com.auth.authservice.enums.UserRole;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.Date;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_created_at", columnList = "createdAt"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -36,6 +37,11 @@ public class Users {
     @Column(nullable = false)
     private LocalDate createdDate;
 
+    // Set by the database on insert, whichever service writes the row. Cursor for the identifier filter's rescans
+    @Column(nullable = false, insertable = false, updatable = false,
+            columnDefinition = "timestamp(6) with time zone default now() not null")
+    private Instant createdAt;
+
     @Column(length = 15, nullable = true)
     private String contactNumber;
 
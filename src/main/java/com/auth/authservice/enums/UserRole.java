@@ -2,5 +2,7 @@ package com.auth.authservice.enums;
 
 public enum UserRole {
     ADMIN,
-    USER
+    USER,
+    // Service accounts of gateways and resource servers calling /api/auth/introspect
+    INTROSPECT
 }
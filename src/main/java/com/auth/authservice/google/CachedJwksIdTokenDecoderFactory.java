@@ -0,0 +1,56 @@
+package com.auth.authservice.google;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ID token decoders that take the provider's keys from {@link ProviderJwksCache}. Validation is the
+ * same as Spring's {@link OidcIdTokenDecoderFactory}: RS256 signature, expiry, issuer, audience and nonce.
+ * Picked up by oauth2Login as the JwtDecoderFactory bean.
+ */
+@Component
+@RequiredArgsConstructor
+public class CachedJwksIdTokenDecoderFactory implements JwtDecoderFactory<ClientRegistration> {
+
+    private final ProviderJwksCache jwksCache;
+    private final Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+
+    @Override
+    public JwtDecoder createDecoder(ClientRegistration clientRegistration) {
+        return decoders.computeIfAbsent(clientRegistration.getRegistrationId(), id -> build(clientRegistration));
+    }
+
+    private JwtDecoder build(ClientRegistration clientRegistration) {
+        String jwkSetUri = clientRegistration.getProviderDetails().getJwkSetUri();
+        if (jwkSetUri == null || jwkSetUri.isEmpty()) {
+            throw new IllegalStateException("No jwk-set-uri for client registration " + clientRegistration.getRegistrationId());
+        }
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwksCache.source(jwkSetUri)));
+        // Claims are checked by the validators below, with Spring's error reporting
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                new JwtTimestampValidator(), new OidcIdTokenValidator(clientRegistration)));
+        decoder.setClaimSetConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverter());
+        return decoder;
+    }
+}
@@ -0,0 +1,208 @@
+package com.auth.authservice.google;
+
+import com.auth.authservice.crypto.AesGcmCipher;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.JdbcOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Google access and refresh tokens in the oauth2_authorized_client table (Spring Security's schema),
+ * with a bounded cache in front so only recently used clients take up heap. Replaces the default
+ * in-memory service, which kept every client forever and lost them all on restart.
+ * Token values are stored AES-GCM encrypted, bound to their registration, principal and column.
+ */
+@Component
+public class CachingJdbcAuthorizedClientService implements OAuth2AuthorizedClientService {
+
+    private static final String TABLE = "oauth2_authorized_client";
+    // Positions of the token values in Spring's parameter list
+    private static final int ACCESS_TOKEN_VALUE = 3;
+    private static final int REFRESH_TOKEN_VALUE = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClientRegistrationRepository clientRegistrationRepository;
+    private final AesGcmCipher cipher;
+    private final JdbcOAuth2AuthorizedClientService.OAuth2AuthorizedClientParametersMapper parametersMapper =
+            new JdbcOAuth2AuthorizedClientService.OAuth2AuthorizedClientParametersMapper();
+    private final Cache<Key, OAuth2AuthorizedClient> cache;
+    private final int cleanupBatchSize;
+    private final Duration refreshTokenRetention;
+
+    public CachingJdbcAuthorizedClientService(MeterRegistry meterRegistry,
+                                              JdbcTemplate jdbcTemplate,
+                                              ClientRegistrationRepository clientRegistrationRepository,
+                                              AesGcmCipher cipher,
+                                              @Value("${app.authorized-clients.cache.max-size:10000}") long cacheMaxSize,
+                                              @Value("${app.authorized-clients.cache.ttl-seconds:300}") long cacheTtlSeconds,
+                                              @Value("${app.authorized-clients.cleanup-batch-size:1000}") int cleanupBatchSize,
+                                              @Value("${app.authorized-clients.refresh-token-retention-days:180}") long refreshTokenRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        this.cipher = cipher;
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.refreshTokenRetention = Duration.ofDays(refreshTokenRetentionDays);
+        // The TTL bounds how long a token saved through another node can be shadowed by an older copy here
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "oauth2AuthorizedClients");
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (" +
+                "client_registration_id VARCHAR(100) NOT NULL, " +
+                "principal_name VARCHAR(200) NOT NULL, " +
+                "access_token_type VARCHAR(100) NOT NULL, " +
+                "access_token_value BYTEA NOT NULL, " +
+                "access_token_issued_at TIMESTAMP NOT NULL, " +
+                "access_token_expires_at TIMESTAMP NOT NULL, " +
+                "access_token_scopes VARCHAR(1000) DEFAULT NULL, " +
+                "refresh_token_value BYTEA DEFAULT NULL, " +
+                "refresh_token_issued_at TIMESTAMP DEFAULT NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL, " +
+                "PRIMARY KEY (client_registration_id, principal_name))");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_" + TABLE + "_access_token_expires_at ON " + TABLE + " (access_token_expires_at)");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(String clientRegistrationId, String principalName) {
+        // Misses that find nothing are not cached, the next save would otherwise have to race the load
+        return (T) cache.get(new Key(clientRegistrationId, principalName), this::load);
+    }
+
+    private OAuth2AuthorizedClient load(Key key) {
+        ClientRegistration registration = clientRegistrationRepository.findByRegistrationId(key.clientRegistrationId());
+        if (registration == null) {
+            return null;
+        }
+        try {
+            List<OAuth2AuthorizedClient> clients = jdbcTemplate.query("SELECT access_token_type, access_token_value, " +
+                            "access_token_issued_at, access_token_expires_at, access_token_scopes, refresh_token_value, " +
+                            "refresh_token_issued_at FROM " + TABLE + " WHERE client_registration_id = ? AND principal_name = ?",
+                    (rs, rowNum) -> {
+                        OAuth2AccessToken accessToken = new OAuth2AccessToken(
+                                new OAuth2AccessToken.TokenType(rs.getString("access_token_type")),
+                                decrypt(key, "access_token_value", rs.getBytes("access_token_value")),
+                                rs.getTimestamp("access_token_issued_at").toInstant(),
+                                rs.getTimestamp("access_token_expires_at").toInstant(),
+                                StringUtils.commaDelimitedListToSet(rs.getString("access_token_scopes")));
+                        byte[] refreshTokenValue = rs.getBytes("refresh_token_value");
+                        Timestamp refreshTokenIssuedAt = rs.getTimestamp("refresh_token_issued_at");
+                        OAuth2RefreshToken refreshToken = refreshTokenValue == null ? null : new OAuth2RefreshToken(
+                                decrypt(key, "refresh_token_value", refreshTokenValue),
+                                refreshTokenIssuedAt == null ? null : refreshTokenIssuedAt.toInstant());
+                        return new OAuth2AuthorizedClient(registration, key.principalName(), accessToken, refreshToken);
+                    },
+                    key.clientRegistrationId(), key.principalName());
+            return clients.isEmpty() ? null : clients.get(0);
+        } catch (AesGcmCipher.DecryptionException e) {
+            // Written in plaintext before encryption was added, or under another key. Dropped so the
+            // plaintext copy does not linger, the user simply consents again
+            delete(key);
+            return null;
+        }
+    }
+
+    // Spring's service checks for a row and then inserts, two concurrent logins of one user hit the primary key
+    @Override
+    public void saveAuthorizedClient(OAuth2AuthorizedClient authorizedClient, Authentication principal) {
+        Key key = new Key(authorizedClient.getClientRegistration().getRegistrationId(), principal.getName());
+        List<SqlParameterValue> mapped = parametersMapper.apply(
+                new JdbcOAuth2AuthorizedClientService.OAuth2AuthorizedClientHolder(authorizedClient, principal));
+        // Token values are mapped as BLOBs, the Postgres driver only binds them as plain byte[] (bytea)
+        Object[] parameters = mapped.toArray();
+        parameters[ACCESS_TOKEN_VALUE] = encrypt(key, "access_token_value", mapped.get(ACCESS_TOKEN_VALUE));
+        parameters[REFRESH_TOKEN_VALUE] = encrypt(key, "refresh_token_value", mapped.get(REFRESH_TOKEN_VALUE));
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (client_registration_id, principal_name, access_token_type, " +
+                        "access_token_value, access_token_issued_at, access_token_expires_at, access_token_scopes, " +
+                        "refresh_token_value, refresh_token_issued_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (client_registration_id, principal_name) DO UPDATE SET " +
+                        "access_token_type = EXCLUDED.access_token_type, " +
+                        "access_token_value = EXCLUDED.access_token_value, " +
+                        "access_token_issued_at = EXCLUDED.access_token_issued_at, " +
+                        "access_token_expires_at = EXCLUDED.access_token_expires_at, " +
+                        "access_token_scopes = EXCLUDED.access_token_scopes, " +
+                        "refresh_token_value = EXCLUDED.refresh_token_value, " +
+                        "refresh_token_issued_at = EXCLUDED.refresh_token_issued_at",
+                parameters);
+        cache.put(key, authorizedClient);
+    }
+
+    @Override
+    public void removeAuthorizedClient(String clientRegistrationId, String principalName) {
+        Key key = new Key(clientRegistrationId, principalName);
+        delete(key);
+        cache.invalidate(key);
+    }
+
+    private void delete(Key key) {
+        jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE client_registration_id = ? AND principal_name = ?",
+                key.clientRegistrationId(), key.principalName());
+    }
+
+    /**
+     * Drops clients that can no longer produce a usable token: an expired access token without a
+     * refresh token, or a refresh token unused for longer than the retention (Google expires refresh tokens
+     * unused for six months). Use is measured by the last access token, every refresh saves a new one,
+     * while Google rarely rotates refresh tokens and Spring keeps their original issue time.
+     * Timestamps are compared as the JDBC service wrote them, in the JVM's time zone.
+     */
+    @Scheduled(fixedDelayString = "${app.authorized-clients.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        Timestamp accessTokenCutoff = Timestamp.from(now);
+        Timestamp lastUsedCutoff = Timestamp.from(now.minus(refreshTokenRetention));
+        // Small batches keep each delete short, SKIP LOCKED lets several nodes sweep at once
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE ctid IN (" +
+                            "SELECT ctid FROM " + TABLE + " WHERE " +
+                            "(refresh_token_value IS NULL AND access_token_expires_at < ?) OR " +
+                            "(refresh_token_value IS NOT NULL AND access_token_issued_at < ?) " +
+                            "LIMIT ? FOR UPDATE SKIP LOCKED)",
+                    accessTokenCutoff, lastUsedCutoff, cleanupBatchSize);
+        } while (deleted == cleanupBatchSize);
+    }
+
+    private byte[] encrypt(Key key, String column, SqlParameterValue value) {
+        byte[] plaintext = (byte[]) value.getValue();
+        return plaintext == null ? null : cipher.encrypt(plaintext, associatedData(key, column));
+    }
+
+    private String decrypt(Key key, String column, byte[] ciphertext) {
+        return new String(cipher.decrypt(ciphertext, associatedData(key, column)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] associatedData(Key key, String column) {
+        return (key.clientRegistrationId() + "\n" + key.principalName() + "\n" + column).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Key(String clientRegistrationId, String principalName) {
+    }
+}
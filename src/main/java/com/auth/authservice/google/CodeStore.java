@@ -1,27 +1,30 @@
 package com.auth.authservice.google;
 
-import org.springframework.stereotype.Component;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+/**
+ * Short-lived, redeem-once storage for the retrieval codes handed to the frontend after an OAuth login.
+ * Backed by {@link InMemoryCodeStore} (default) or {@link JdbcCodeStore} when app.code-store.type=jdbc.
+ */
+public interface CodeStore {
 
-@Component
-public class CodeStore {
-    private final Map<String, String> codeTokenMap = new ConcurrentHashMap<>();
-    private final Map<String, Long> expiryMap = new ConcurrentHashMap<>();
+    void saveCode(String type, String code, String token);
 
-    public void saveCode(String type, String code, String token) {
-        String key = type + ":" + code;
-        codeTokenMap.put(key, token);
-        expiryMap.put(key, System.currentTimeMillis() + 60000);
+    // Returns the token and removes it, or null if the code is unknown or expired
+    String getToken(String type, String code);
+
+    static Timer timer(MeterRegistry meterRegistry, String operation, String backend) {
+        return Timer.builder("auth.code.store")
+                .description("Time to save or redeem an OAuth retrieval code")
+                .tag("operation", operation)
+                .tag("backend", backend)
+                .register(meterRegistry);
     }
 
-    public String getToken(String type, String code) {
-        String key = type + ":" + code;
-        if (expiryMap.containsKey(key) && System.currentTimeMillis() < expiryMap.get(key)) {
-            expiryMap.remove(key);
-            return codeTokenMap.remove(key);
+    class CodeStoreFullException extends RuntimeException {
+        public CodeStoreFullException(String message) {
+            super(message);
         }
-        return null;
     }
 }
@@ -0,0 +1,151 @@
+package com.auth.authservice.google;
+
+import com.auth.authservice.crypto.AesGcmCipher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the pending OAuth2 authorization request in an encrypted cookie instead of the HTTP session,
+ * so the Google callback can be served by any node. AES-GCM both hides and authenticates the content,
+ * a cookie that was altered, expired or belongs to another state is treated as absent.
+ */
+@Component
+@RequiredArgsConstructor
+public class CookieAuthorizationRequestRepository implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+    static final String COOKIE_NAME = "oauth2_auth_request";
+    private static final byte[] ASSOCIATED_DATA = COOKIE_NAME.getBytes(StandardCharsets.UTF_8);
+
+    private final AesGcmCipher cipher;
+    private final ObjectMapper objectMapper;
+
+    // Only has to outlive the user's visit to Google
+    @Value("${app.oauth2.authorization-cookie.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    @Value("${app.oauth2.authorization-cookie.secure:true}")
+    private boolean secure;
+
+    @Override
+    public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+        String state = request.getParameter(OAuth2ParameterNames.STATE);
+        if (state == null) {
+            return null;
+        }
+        OAuth2AuthorizationRequest authorizationRequest = read(request);
+        return authorizationRequest != null && state.equals(authorizationRequest.getState()) ? authorizationRequest : null;
+    }
+
+    @Override
+    public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest,
+                                         HttpServletRequest request,
+                                         HttpServletResponse response) {
+        if (authorizationRequest == null) {
+            writeCookie(response, "", Duration.ZERO);
+            return;
+        }
+        StoredRequest stored = new StoredRequest(
+                authorizationRequest.getAuthorizationUri(),
+                authorizationRequest.getClientId(),
+                authorizationRequest.getRedirectUri(),
+                authorizationRequest.getScopes(),
+                authorizationRequest.getState(),
+                authorizationRequest.getAdditionalParameters(),
+                authorizationRequest.getAuthorizationRequestUri(),
+                authorizationRequest.getAttributes(),
+                Instant.now().plusSeconds(maxAgeSeconds).toEpochMilli());
+        try {
+            byte[] encrypted = cipher.encrypt(objectMapper.writeValueAsBytes(stored), ASSOCIATED_DATA);
+            writeCookie(response, Base64.getUrlEncoder().withoutPadding().encodeToString(encrypted), Duration.ofSeconds(maxAgeSeconds));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize the authorization request", e);
+        }
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request, HttpServletResponse response) {
+        OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+        if (authorizationRequest != null) {
+            writeCookie(response, "", Duration.ZERO);
+        }
+        return authorizationRequest;
+    }
+
+    private OAuth2AuthorizationRequest read(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                return decode(cookie.getValue());
+            }
+        }
+        return null;
+    }
+
+    private OAuth2AuthorizationRequest decode(String value) {
+        StoredRequest stored;
+        try {
+            byte[] json = cipher.decrypt(Base64.getUrlDecoder().decode(value), ASSOCIATED_DATA);
+            stored = objectMapper.readValue(json, StoredRequest.class);
+        } catch (IllegalArgumentException | AesGcmCipher.DecryptionException | IOException e) {
+            return null;
+        }
+        // The cookie's Max-Age is up to the browser, the expiry inside the ciphertext is not
+        if (stored.expiresAt() < System.currentTimeMillis()) {
+            return null;
+        }
+        return OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri(stored.authorizationUri())
+                .clientId(stored.clientId())
+                .redirectUri(stored.redirectUri())
+                .scopes(stored.scopes())
+                .state(stored.state())
+                .additionalParameters(stored.additionalParameters())
+                .authorizationRequestUri(stored.authorizationRequestUri())
+                .attributes(stored.attributes())
+                .build();
+    }
+
+    // SameSite=Lax still sends the cookie on the top-level redirect back from Google
+    private void writeCookie(HttpServletResponse response, String value, Duration maxAge) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+                .path("/")
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite("Lax")
+                .maxAge(maxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private record StoredRequest(String authorizationUri,
+                                 String clientId,
+                                 String redirectUri,
+                                 Set<String> scopes,
+                                 String state,
+                                 Map<String, Object> additionalParameters,
+                                 String authorizationRequestUri,
+                                 Map<String, Object> attributes,
+                                 long expiresAt) {
+    }
+}
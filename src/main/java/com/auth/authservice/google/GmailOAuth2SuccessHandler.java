@@ -2,7 +2,9 @@ package com.auth.authservice.google;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.auth.authservice.services.GmailTokenService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
@@ -15,12 +17,14 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.UUID;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class GmailOAuth2SuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
 
     private final OAuth2AuthorizedClientRepository authorizedClientRepository;
     private final CodeStore codeStore;
+    private final GmailTokenService gmailTokenService;
 
     @Value("${app.base.gmail.redirect.url}")
     private String gmailRedirectUrl;
@@ -45,22 +49,20 @@ public class GmailOAuth2SuccessHandler extends SimpleUrlAuthenticationSuccessHan
         String name = (String) oauthUser.getAttributes().get("name");
         String picture = (String) oauthUser.getAttributes().get("picture");
 
-        System.out.println("Connected Gmail account: " + name + " <" + email + ">");
+        log.debug("Connected Gmail account: {} <{}>", name, email);
 
-        String accessToken = client.getAccessToken().getTokenValue();
-        String refreshToken = client.getRefreshToken() != null
-                ? client.getRefreshToken().getTokenValue()
-                : null;
+        if (email == null) {
+            response.sendRedirect("/login?error=missing-email");
+            return;
+        }
 
-        // Save access, refresh, and user email
-        String gmailRetrievalCode = UUID.randomUUID().toString();
-        String combinedValue = String.join("_&&_",
-                accessToken,
-                refreshToken != null ? refreshToken : "NO_REFRESH",
-                email != null ? email : "UNKNOWN_EMAIL"
-        );
+        // The tokens stay server-side, the frontend only learns which account was connected
+        gmailTokenService.store(email, client);
+        // gmail_grants is the only copy kept, the login filter saved this client through the authorized-client service
+        authorizedClientRepository.removeAuthorizedClient(oauthToken.getAuthorizedClientRegistrationId(), authentication, request, response);
 
-        codeStore.saveCode("gmail", gmailRetrievalCode, combinedValue);
+        String gmailRetrievalCode = UUID.randomUUID().toString();
+        codeStore.saveCode("gmail", gmailRetrievalCode, email);
 
         String redirectUrl = gmailRedirectUrl.replace("{gmail}", gmailRetrievalCode);
         getRedirectStrategy().sendRedirect(request, response, redirectUrl);
@@ -0,0 +1,78 @@
+package com.auth.authservice.google;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Default backend, codes live on the node that issued them
+@Component
+@ConditionalOnProperty(name = "app.code-store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCodeStore implements CodeStore {
+
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+    private final long ttlMs;
+    private final int maxEntries;
+    private final Timer saveTimer;
+    private final Timer redeemTimer;
+
+    public InMemoryCodeStore(MeterRegistry meterRegistry,
+                             @Value("${app.code-store.ttl-ms:60000}") long ttlMs,
+                             @Value("${app.code-store.max-entries:100000}") int maxEntries) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        Gauge.builder("auth.code.store.size", codes, Map::size)
+                .description("Unredeemed OAuth retrieval codes held in memory")
+                .register(meterRegistry);
+        this.saveTimer = CodeStore.timer(meterRegistry, "save", "memory");
+        this.redeemTimer = CodeStore.timer(meterRegistry, "redeem", "memory");
+    }
+
+    @Override
+    public void saveCode(String type, String code, String token) {
+        saveTimer.record(() -> save(type, code, token));
+    }
+
+    // Redeem-once: the remove is atomic, so a code can never be handed out twice
+    @Override
+    public String getToken(String type, String code) {
+        return redeemTimer.record(() -> redeem(type, code));
+    }
+
+    private void save(String type, String code, String token) {
+        if (codes.size() >= maxEntries) {
+            purgeExpired();
+            if (codes.size() >= maxEntries) {
+                throw new CodeStoreFullException("Code store is full");
+            }
+        }
+        codes.put(type + ":" + code, new Entry(token, System.currentTimeMillis() + ttlMs));
+    }
+
+    private String redeem(String type, String code) {
+        Entry entry = codes.remove(type + ":" + code);
+        if (entry == null || System.currentTimeMillis() >= entry.expiresAt()) {
+            return null;
+        }
+        return entry.token();
+    }
+
+    @Scheduled(fixedDelayString = "${app.code-store.sweep-interval-ms:30000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        codes.values().removeIf(entry -> now >= entry.expiresAt());
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    private record Entry(String token, long expiresAt) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.auth.authservice.google;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Postgres-backed store shared by every node, so the OAuth callback and the code exchange can land anywhere.
+ * The table is UNLOGGED: codes live for a minute, so skipping the WAL is worth losing them on a crash.
+ */
+@Component
+@ConditionalOnProperty(name = "app.code-store.type", havingValue = "jdbc")
+public class JdbcCodeStore implements CodeStore {
+
+    private static final String TABLE = "oauth_retrieval_codes";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMs;
+    private final int cleanupBatchSize;
+    private final Timer saveTimer;
+    private final Timer redeemTimer;
+
+    // Counted once per sweep rather than on every scrape, a Prometheus scrape must not cost a table scan
+    private volatile int lastCountedSize;
+
+    public JdbcCodeStore(MeterRegistry meterRegistry,
+                         JdbcTemplate jdbcTemplate,
+                         @Value("${app.code-store.ttl-ms:60000}") long ttlMs,
+                         @Value("${app.code-store.cleanup-batch-size:1000}") int cleanupBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMs = ttlMs;
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.saveTimer = CodeStore.timer(meterRegistry, "save", "jdbc");
+        this.redeemTimer = CodeStore.timer(meterRegistry, "redeem", "jdbc");
+        Gauge.builder("auth.code.store.size", this, store -> store.lastCountedSize)
+                .description("Unredeemed OAuth retrieval codes in the shared table, as of the last sweep")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE IF NOT EXISTS " + TABLE + " (" +
+                "code_key VARCHAR(255) PRIMARY KEY, " +
+                "token TEXT NOT NULL, " +
+                "expires_at TIMESTAMPTZ NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_" + TABLE + "_expires_at ON " + TABLE + " (expires_at)");
+    }
+
+    @Override
+    public void saveCode(String type, String code, String token) {
+        saveTimer.record(() -> jdbcTemplate.update("INSERT INTO " + TABLE + " (code_key, token, expires_at) " +
+                        "VALUES (?, ?, now() + make_interval(secs => ?))",
+                type + ":" + code, token, ttlMs / 1000.0));
+    }
+
+    // One statement both redeems and removes the code, a second redeem finds nothing
+    @Override
+    public String getToken(String type, String code) {
+        List<String> tokens = redeemTimer.record(() -> jdbcTemplate.queryForList("DELETE FROM " + TABLE + " WHERE code_key = ? " +
+                        "RETURNING CASE WHEN expires_at > now() THEN token END",
+                String.class, type + ":" + code));
+        return tokens.isEmpty() ? null : tokens.get(0);
+    }
+
+    public int size() {
+        Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + TABLE, Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    @Scheduled(fixedDelayString = "${app.code-store.sweep-interval-ms:30000}")
+    public void purgeExpired() {
+        // Small batches keep each delete short, SKIP LOCKED lets several nodes sweep at once
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE code_key IN (" +
+                            "SELECT code_key FROM " + TABLE + " WHERE expires_at <= now() " +
+                            "LIMIT ? FOR UPDATE SKIP LOCKED)",
+                    cleanupBatchSize);
+        } while (deleted == cleanupBatchSize);
+        lastCountedSize = size();
+    }
+}
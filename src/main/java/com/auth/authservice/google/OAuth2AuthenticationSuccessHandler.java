@@ -1,9 +1,11 @@
 package com.auth.authservice.google;
 
+import com.auth.authservice.datasource.ReadYourWrites;
 import com.auth.authservice.entities.GoogleUsers;
 import com.auth.authservice.jwt.JwtUtils;
 import com.auth.authservice.repository.GoogleUsersRepository;
 import com.auth.authservice.services.CustomGoogleUserDetailsService;
+import com.auth.authservice.services.KnownIdentifierFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -40,6 +42,12 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
     @Autowired
     private final OAuth2AuthorizedClientService authorizedClientService;
 
+    @Autowired
+    private KnownIdentifierFilter knownIdentifierFilter;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
     @Value("${app.base.google.redirect.url}")
     private String _redirectUrl;
 
@@ -53,17 +61,14 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         assert email != null;
         String username = email.split("@")[0];
 
-        googleUsersRepository.getByEmail(email).orElseGet(()->
-                googleUsersRepository.save(GoogleUsers.builder()
-                        .username(username)
-                        .email(email)
-                        .role("USER")
-                        .createdDate(LocalDate.now())
-                        .build()));
+        // One statement on the primary for new and returning users alike, its row is all the UserDetails needs
+        GoogleUsers googleUser = googleUsersRepository.upsertByEmail(username, email, "USER", LocalDate.now());
+        knownIdentifierFilter.add(googleUser.getUsername(), googleUser.getEmail());
+        readYourWrites.recordWrite(googleUser.getUsername(), googleUser.getEmail());
 
-        UserDetails user = userDetailsService.loadUserByUsername(email);
+        UserDetails user = userDetailsService.remember(googleUser);
 
-        String jwtToken = jwtUtils.generateToken(user);
+        String jwtToken = jwtUtils.generateGoogleToken(user, googleUser.getEmail());
         String jwtRetrievalCode = UUID.randomUUID().toString();
         codeStore.saveCode("googleLogin", jwtRetrievalCode, jwtToken);
 
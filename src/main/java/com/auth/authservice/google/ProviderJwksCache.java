@@ -0,0 +1,116 @@
+package com.auth.authservice.google;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.stereotype.Component;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The identity providers' signing keys, kept in memory and refreshed in the background so verifying
+ * an ID token never waits on a JWKS download. Only a token signed with a key we have not seen yet
+ * (the provider rotated) triggers an inline fetch, at most once per refresh-cooldown-ms.
+ */
+@Slf4j
+@Component
+public class ProviderJwksCache {
+
+    private static final int SIZE_LIMIT_BYTES = 256 * 1024;
+
+    private final ClientRegistrationRepository clientRegistrationRepository;
+    private final int timeoutMs;
+    private final long refreshCooldownMs;
+    private final Map<String, CachedKeys> keysByUri = new ConcurrentHashMap<>();
+    // Not synchronized, a virtual thread blocked on the download inside it would pin its carrier thread
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public ProviderJwksCache(ClientRegistrationRepository clientRegistrationRepository,
+                             @Value("${app.oauth2.jwks.timeout-ms:5000}") int timeoutMs,
+                             @Value("${app.oauth2.jwks.refresh-cooldown-ms:30000}") long refreshCooldownMs) {
+        this.clientRegistrationRepository = clientRegistrationRepository;
+        this.timeoutMs = timeoutMs;
+        this.refreshCooldownMs = refreshCooldownMs;
+    }
+
+    public JWKSource<SecurityContext> source(String jwkSetUri) {
+        return (selector, context) -> select(jwkSetUri, selector);
+    }
+
+    // Runs right after startup as well, so even the first login finds the keys in memory
+    @Scheduled(fixedDelayString = "${app.oauth2.jwks.refresh-interval-ms:900000}")
+    public void refreshAll() {
+        if (clientRegistrationRepository instanceof Iterable<?> registrations) {
+            for (Object registration : registrations) {
+                String jwkSetUri = ((ClientRegistration) registration).getProviderDetails().getJwkSetUri();
+                if (jwkSetUri != null && !jwkSetUri.isEmpty()) {
+                    keysByUri.putIfAbsent(jwkSetUri, CachedKeys.EMPTY);
+                }
+            }
+        }
+        keysByUri.keySet().forEach(uri -> {
+            try {
+                refresh(uri);
+            } catch (KeySourceException e) {
+                // The previous keys stay in use until a refresh succeeds
+                log.warn("Could not refresh JWKS from {}: {}", uri, e.getMessage());
+            }
+        });
+    }
+
+    private List<JWK> select(String jwkSetUri, JWKSelector selector) throws KeySourceException {
+        CachedKeys cached = keysByUri.getOrDefault(jwkSetUri, CachedKeys.EMPTY);
+        List<JWK> keys = selector.select(cached.keys());
+        if (keys.isEmpty() && System.currentTimeMillis() - cached.fetchedAt() >= refreshCooldownMs) {
+            keys = selector.select(refreshUnlessChanged(jwkSetUri, cached).keys());
+        }
+        return keys;
+    }
+
+    // Logins that all hit a new kid at once wait for one download instead of each starting their own
+    private CachedKeys refreshUnlessChanged(String jwkSetUri, CachedKeys seen) throws KeySourceException {
+        refreshLock.lock();
+        try {
+            CachedKeys current = keysByUri.getOrDefault(jwkSetUri, CachedKeys.EMPTY);
+            if (current != seen) {
+                return current;
+            }
+            try {
+                return refresh(jwkSetUri);
+            } catch (KeySourceException e) {
+                // A failed attempt starts the cooldown too, an unreachable provider is not retried on every login
+                keysByUri.put(jwkSetUri, new CachedKeys(current.keys(), System.currentTimeMillis()));
+                throw e;
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private CachedKeys refresh(String jwkSetUri) throws KeySourceException {
+        try {
+            CachedKeys fetched = new CachedKeys(JWKSet.load(new URL(jwkSetUri), timeoutMs, timeoutMs, SIZE_LIMIT_BYTES),
+                    System.currentTimeMillis());
+            keysByUri.put(jwkSetUri, fetched);
+            return fetched;
+        } catch (Exception e) {
+            throw new KeySourceException("Could not fetch JWKS from " + jwkSetUri, e);
+        }
+    }
+
+    private record CachedKeys(JWKSet keys, long fetchedAt) {
+        static final CachedKeys EMPTY = new CachedKeys(new JWKSet(), 0);
+    }
+}
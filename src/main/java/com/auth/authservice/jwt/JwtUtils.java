@@ -1,41 +1,131 @@
 package com.auth.authservice.jwt;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.io.Serializer;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import java.security.Key;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtils {
 
+    // Set only on tokens issued by the Google login, carries the verified Google address the token belongs to
+    public static final String GOOGLE_EMAIL_CLAIM = "google_email";
+
+    // Refresh-token family the access token was issued with, logout revokes the family through it
+    public static final String SESSION_CLAIM = "sid";
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.expiration}")
     private long expirationInMs;
 
+    // Until then, tokens without a kid (HS256 with jwt.secret) are still accepted in RS256/ES256 mode. Unset: rejected
+    @Value("${jwt.signing.legacy-hs256-until:}")
+    private String legacyHs256Until;
+
+    @Autowired
+    private SigningKeyManager signingKeyManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Built once at startup, all three are immutable and thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+    private Serializer<Map<String, ?>> serializer;
+    private Instant legacyHs256Deadline;
+    private Timer signTimer;
+    private Timer parseTimer;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secretKey));
+        legacyHs256Deadline = legacyHs256Until == null || legacyHs256Until.isBlank() ? null : Instant.parse(legacyHs256Until);
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return verificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+        // Jwts.builder() otherwise looks up and creates a new JSON serializer for every token
+        serializer = loadSerializer();
+
+        signTimer = jwtTimer("sign");
+        parseTimer = jwtTimer("parse");
+    }
+
     public String generateToken(UserDetails userDetails) {
-        Key signingKey = getSigningKey();
-        Date expirationDate = getExpiratonDate();
+        return generateToken(userDetails, null, null);
+    }
+
+    public String generateToken(UserDetails userDetails, UUID sessionId) {
+        return generateToken(userDetails, null, sessionId);
+    }
 
-        List<String> roles = userDetails.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toList());
+    // Basic and Google usernames share one namespace, only this claim ties a token to a Google account
+    public String generateGoogleToken(UserDetails userDetails, String googleEmail) {
+        return generateToken(userDetails, googleEmail, null);
+    }
+
+    private String generateToken(UserDetails userDetails, String googleEmail, UUID sessionId) {
+        long start = System.nanoTime();
+        try {
+            return sign(userDetails, googleEmail, sessionId);
+        } finally {
+            signTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
-        return Jwts.builder()
+    private String sign(UserDetails userDetails, String googleEmail, UUID sessionId) {
+        long now = System.currentTimeMillis();
+
+        JwtBuilder builder = Jwts.builder()
+                .serializeToJsonWith(serializer)
+                .setId(UUID.randomUUID().toString()) // jti, lets a single token be revoked
                 .setSubject(userDetails.getUsername())
-                .claim("roles", roles) // plural
-                .setIssuedAt(new Date())
-                .setExpiration(expirationDate)
-                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .claim("roles", toRoles(userDetails.getAuthorities())) // plural
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expirationInMs));
+        if (googleEmail != null) {
+            builder.claim(GOOGLE_EMAIL_CLAIM, googleEmail);
+        }
+        if (sessionId != null) {
+            builder.claim(SESSION_CLAIM, sessionId.toString());
+        }
+
+        SigningKeyManager.ActiveKey activeKey = signingKeyManager.currentSigningKey();
+        if (activeKey == null) {
+            return builder.signWith(signingKey, SignatureAlgorithm.HS256).compact();
+        }
+        return builder.setHeaderParam(JwsHeader.KEY_ID, activeKey.kid())
+                .signWith(activeKey.privateKey(), activeKey.algorithm())
                 .compact();
     }
 
@@ -44,17 +134,55 @@ public class JwtUtils {
     }
 
     public String extractUsername(String token){
-        Key signingKey = getSigningKey();
-        Claims claims =  Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseClaims(token).getSubject();
+    }
+
+    // Verifies the signature and expiry, throws JwtException if the token is not valid
+    public Claims parseClaims(String token){
+        long start = System.nanoTime();
+        try {
+            return parser.parseClaimsJws(token).getBody();
+        } finally {
+            parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Tokens without a kid are HS256 with the shared secret. After a switch to RS256/ES256 they are only
+    // accepted until jwt.signing.legacy-hs256-until, otherwise anyone holding the secret could mint tokens forever
+    private Key verificationKey(String kid) {
+        if (kid == null) {
+            if (signingKeyManager.isAsymmetric()
+                    && (legacyHs256Deadline == null || !Instant.now().isBefore(legacyHs256Deadline))) {
+                throw new SignatureException("Tokens without a kid are no longer accepted");
+            }
+            return signingKey;
+        }
+        Key key = signingKeyManager.verificationKey(kid);
+        if (key == null) {
+            throw new SignatureException("Unknown signing key " + kid);
+        }
+        return key;
+    }
+
+    private Timer jwtTimer(String operation) {
+        return Timer.builder("auth.jwt")
+                .description("Time to sign or to parse and verify an access token")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
 
-        return claims.getSubject();
+    @SuppressWarnings("unchecked")
+    private static Serializer<Map<String, ?>> loadSerializer() {
+        return ServiceLoader.load(Serializer.class)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No JWT JSON serializer on the classpath"));
     }
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(Base64.getDecoder().decode(secretKey));
+    private static List<String> toRoles(Collection<? extends GrantedAuthority> authorities) {
+        List<String> roles = new ArrayList<>(authorities.size());
+        for (GrantedAuthority authority : authorities) {
+            roles.add(authority.getAuthority());
+        }
+        return roles;
     }
 }
@@ -0,0 +1,281 @@
+package com.auth.authservice.jwt;
+
+import com.auth.authservice.crypto.AesGcmCipher;
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.entities.SigningKey;
+import com.auth.authservice.repository.SigningKeyRepository;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Asymmetric signing keys shared by all instances through the jwt_signing_keys table. New keys are
+ * published in the JWKS ahead of their activation and old ones stay published until the last tokens
+ * they signed have expired, so verifiers caching the key set never see an unknown kid.
+ * With jwt.signing.algorithm=HS256 (the default) no keys are created and the key set is empty.
+ */
+@Slf4j
+@Component
+public class SigningKeyManager {
+
+    private static final long ROTATION_LOCK_ID = 0x6a776b73L;
+
+    @Autowired
+    SigningKeyRepository signingKeyRepository;
+
+    @Autowired
+    private AesGcmCipher cipher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Value("${jwt.signing.algorithm:HS256}")
+    private String algorithmName;
+
+    @Value("${jwt.expiration}")
+    private long tokenLifetimeMs;
+
+    @Value("${jwt.signing.rotation-interval-ms:604800000}")
+    private long rotationIntervalMs;
+
+    @Value("${jwt.signing.publish-ahead-ms:600000}")
+    private long publishAheadMs;
+
+    @Value("${jwt.signing.overlap-ms:3600000}")
+    private long overlapMs;
+
+    @Value("${jwt.jwks.max-age-seconds:300}")
+    private long jwksMaxAgeSeconds;
+
+    private SignatureAlgorithm algorithm;
+    private TransactionTemplate transaction;
+
+    // Replaced as a whole on every reload, readers never see a half-built key set
+    private volatile KeySet keySet = KeySet.EMPTY;
+
+    @PostConstruct
+    public void init() {
+        algorithm = SignatureAlgorithm.forName(algorithmName);
+        if (algorithm != SignatureAlgorithm.HS256 && algorithm != SignatureAlgorithm.RS256
+                && algorithm != SignatureAlgorithm.ES256) {
+            throw new IllegalStateException("Unsupported jwt.signing.algorithm " + algorithmName + ", use HS256, RS256 or ES256");
+        }
+        if (!isAsymmetric()) {
+            return;
+        }
+        if (publishAheadMs < jwksMaxAgeSeconds * 1000) {
+            log.warn("jwt.signing.publish-ahead-ms is shorter than the JWKS max-age, verifiers may see a new kid before their cache expires");
+        }
+        transaction = new TransactionTemplate(transactionManager);
+        refresh();
+    }
+
+    public boolean isAsymmetric() {
+        return algorithm != SignatureAlgorithm.HS256;
+    }
+
+    // Newest key that has already been activated, null in HS256 mode
+    public ActiveKey currentSigningKey() {
+        if (!isAsymmetric()) {
+            return null;
+        }
+        Instant now = Instant.now();
+        for (ParsedKey key : keySet.signingKeys()) {
+            if (!key.activatesAt().isAfter(now)) {
+                return key.activeKey();
+            }
+        }
+        throw new IllegalStateException("No active JWT signing key");
+    }
+
+    public PublicKey verificationKey(String kid) {
+        ParsedKey key = keySet.byKid().get(kid);
+        return key == null ? null : key.publicKey();
+    }
+
+    public Jwks jwks() {
+        return keySet.jwks();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.signing.reload-interval-ms:60000}",
+            initialDelayString = "${jwt.signing.reload-interval-ms:60000}")
+    public void refresh() {
+        if (!isAsymmetric()) {
+            return;
+        }
+        transaction.executeWithoutResult(status -> rotateIfDue());
+        reload();
+    }
+
+    private void rotateIfDue() {
+        signingKeyRepository.lockRotation(ROTATION_LOCK_ID);
+        Instant now = Instant.now();
+        signingKeyRepository.deleteExpired(now);
+
+        SigningKey newest = null;
+        for (SigningKey key : signingKeyRepository.findByExpiresAtAfterOrderByActivatesAtDesc(now)) {
+            if (key.getAlgorithm().equals(algorithm.getValue())) {
+                newest = key;
+                break;
+            }
+        }
+        if (newest == null) {
+            // First start or algorithm change, nothing to stay compatible with
+            signingKeyRepository.save(generate(now, now));
+            log.info("Created {} signing key", algorithm.getValue());
+        } else if (!newest.getActivatesAt().isAfter(now)
+                && !now.isBefore(newest.getActivatesAt().plusMillis(rotationIntervalMs - publishAheadMs))) {
+            SigningKey next = signingKeyRepository.save(generate(now, now.plusMillis(publishAheadMs)));
+            log.info("Rotating signing key, {} activates at {}", next.getKid(), next.getActivatesAt());
+        }
+    }
+
+    private SigningKey generate(Instant now, Instant activatesAt) {
+        String kid = UUID.randomUUID().toString();
+        KeyPair keyPair = generateKeyPair();
+        return SigningKey.builder()
+                .kid(kid)
+                .algorithm(algorithm.getValue())
+                .publicKey(keyPair.getPublic().getEncoded())
+                .privateKey(cipher.encrypt(keyPair.getPrivate().getEncoded(), kid.getBytes(StandardCharsets.UTF_8)))
+                .createdAt(now)
+                .activatesAt(activatesAt)
+                // A key signs for one rotation interval, its tokens then live for up to jwt.expiration
+                .expiresAt(activatesAt.plusMillis(rotationIntervalMs + tokenLifetimeMs + overlapMs))
+                .build();
+    }
+
+    private KeyPair generateKeyPair() {
+        try {
+            if (algorithm.isRsa()) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                return generator.generateKeyPair();
+            }
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void reload() {
+        // A key created moments ago may not have reached the replicas yet
+        List<SigningKey> rows = readYourWrites.onPrimary(
+                () -> signingKeyRepository.findByExpiresAtAfterOrderByActivatesAtDesc(Instant.now()));
+
+        KeySet previous = keySet;
+        Map<String, ParsedKey> byKid = new HashMap<>();
+        List<ParsedKey> signingKeys = new ArrayList<>();
+        List<JWK> jwks = new ArrayList<>(rows.size());
+        for (SigningKey row : rows) {
+            // Keys never change once written, only new rows need decoding and decrypting
+            ParsedKey key = previous.byKid().get(row.getKid());
+            if (key == null) {
+                key = parse(row);
+            }
+            byKid.put(key.kid(), key);
+            jwks.add(key.jwk());
+            if (key.activeKey() != null) {
+                signingKeys.add(key);
+            }
+        }
+        keySet = new KeySet(Map.copyOf(byKid), List.copyOf(signingKeys), Jwks.of(new JWKSet(jwks).toString()));
+    }
+
+    private ParsedKey parse(SigningKey row) {
+        SignatureAlgorithm rowAlgorithm = SignatureAlgorithm.forName(row.getAlgorithm());
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(rowAlgorithm.isRsa() ? "RSA" : "EC");
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(row.getPublicKey()));
+
+            ActiveKey activeKey = null;
+            // Keys of a previous algorithm are only kept for verification
+            if (rowAlgorithm == algorithm) {
+                byte[] encoded = cipher.decrypt(row.getPrivateKey(), row.getKid().getBytes(StandardCharsets.UTF_8));
+                PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(encoded));
+                activeKey = new ActiveKey(row.getKid(), privateKey, rowAlgorithm);
+            }
+            return new ParsedKey(row.getKid(), row.getActivatesAt(), publicKey, activeKey, toJwk(row.getKid(), rowAlgorithm, publicKey));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unreadable signing key " + row.getKid(), e);
+        }
+    }
+
+    private static JWK toJwk(String kid, SignatureAlgorithm algorithm, PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey rsaKey) {
+            return new RSAKey.Builder(rsaKey)
+                    .keyID(kid)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.parse(algorithm.getValue()))
+                    .build();
+        }
+        return new ECKey.Builder(Curve.P_256, (ECPublicKey) publicKey)
+                .keyID(kid)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.parse(algorithm.getValue()))
+                .build();
+    }
+
+    public record ActiveKey(String kid, PrivateKey privateKey, SignatureAlgorithm algorithm) {
+    }
+
+    // The serialized key set and its ETag, computed once per reload rather than per request
+    public record Jwks(String json, String etag) {
+
+        static Jwks of(String json) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8));
+                return new Jwks(json, "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private record ParsedKey(String kid, Instant activatesAt, PublicKey publicKey, ActiveKey activeKey, JWK jwk) {
+    }
+
+    // signingKeys is ordered newest activation first
+    private record KeySet(Map<String, ParsedKey> byKid, List<ParsedKey> signingKeys, Jwks jwks) {
+        static final KeySet EMPTY = new KeySet(Map.of(), List.of(), Jwks.of(new JWKSet().toString()));
+    }
+}
@@ -0,0 +1,64 @@
+package com.auth.authservice.jwt;
+
+import com.auth.authservice.services.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks an access token against the verified-token cache, the signature and the revocation list.
+ * Shared by the authentication filter and the introspection endpoint. Safe to call from any thread.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenVerifier {
+
+    private final JwtUtils jwtUtils;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationService tokenRevocationService;
+
+    // Returns null when the token is malformed, badly signed, expired or revoked
+    public VerifiedTokenCache.VerifiedToken verify(String token) {
+        VerifiedTokenCache.VerifiedToken verified = verifiedTokenCache.get(token);
+        if (verified == null) {
+            verified = parse(token);
+        }
+        if (verified == null || tokenRevocationService.isRevoked(verified.jti())) {
+            return null;
+        }
+        return verified;
+    }
+
+    private VerifiedTokenCache.VerifiedToken parse(String token) {
+        try {
+            Claims claims = jwtUtils.parseClaims(token);
+            if (claims.getSubject() == null || claims.getExpiration() == null) {
+                return null;
+            }
+            VerifiedTokenCache.VerifiedToken verified = new VerifiedTokenCache.VerifiedToken(
+                    claims.getId(), claims.getSubject(), toAuthorities(claims.get("roles")), claims.getExpiration().toInstant(),
+                    claims.get(JwtUtils.GOOGLE_EMAIL_CLAIM, String.class));
+            verifiedTokenCache.put(token, verified);
+            return verified;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static List<GrantedAuthority> toAuthorities(Object roles) {
+        if (!(roles instanceof List<?> roleList)) {
+            return List.of();
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(roleList.size());
+        for (Object role : roleList) {
+            authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+        }
+        return List.copyOf(authorities);
+    }
+}
@@ -0,0 +1,47 @@
+package com.auth.authservice.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets one in every {@code rate} log calls from loggers under {@code loggerPrefix} through and drops
+ * the rest before a logging event is created. Configured in logback-spring.xml for the prod profile,
+ * where it keeps a sample of Hibernate's SQL statements without paying for all of them.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final AtomicLong calls = new AtomicLong();
+    private String loggerPrefix;
+    private int rate = 100;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // A null format is an isDebugEnabled() style check, only the actual log call counts
+        if (!isStarted() || format == null || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return calls.getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (loggerPrefix == null || rate < 1) {
+            addError("SamplingTurboFilter needs a loggerPrefix and a rate of at least 1");
+            return;
+        }
+        super.start();
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,62 @@
+package com.auth.authservice.repository;
+
+import com.auth.authservice.entities.GmailGrant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface GmailGrantRepository extends JpaRepository<GmailGrant, String> {
+
+    // A reconnect without a new refresh token keeps the previous one
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "INSERT INTO gmail_grants (email, access_token, access_token_expires_at, refresh_token, " +
+            "scopes, last_used_at, updated_at) VALUES (:email, :accessToken, :expiresAt, :refreshToken, :scopes, :now, :now) " +
+            "ON CONFLICT (email) DO UPDATE SET access_token = EXCLUDED.access_token, " +
+            "access_token_expires_at = EXCLUDED.access_token_expires_at, " +
+            "refresh_token = COALESCE(EXCLUDED.refresh_token, gmail_grants.refresh_token), " +
+            "scopes = EXCLUDED.scopes, last_used_at = EXCLUDED.last_used_at, updated_at = EXCLUDED.updated_at")
+    int upsert(@Param("email") String email,
+               @Param("accessToken") byte[] accessToken,
+               @Param("expiresAt") Instant expiresAt,
+               @Param("refreshToken") byte[] refreshToken,
+               @Param("scopes") String scopes,
+               @Param("now") Instant now);
+
+    // Claims recently used grants that expire soon, grants claimed by another node are skipped until the claim lapses
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE gmail_grants SET refresh_claimed_until = :claimUntil WHERE email IN (" +
+            "SELECT email FROM gmail_grants WHERE access_token_expires_at < :expiresBefore " +
+            "AND refresh_token IS NOT NULL AND last_used_at > :usedAfter " +
+            "AND (refresh_claimed_until IS NULL OR refresh_claimed_until < :now) " +
+            "LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+            "RETURNING email")
+    List<String> claimDueForRefresh(@Param("expiresBefore") Instant expiresBefore,
+                                    @Param("usedAfter") Instant usedAfter,
+                                    @Param("now") Instant now,
+                                    @Param("claimUntil") Instant claimUntil,
+                                    @Param("batchSize") int batchSize);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE GmailGrant g SET g.accessToken = :accessToken, g.accessTokenExpiresAt = :expiresAt, " +
+            "g.refreshToken = COALESCE(:refreshToken, g.refreshToken), g.refreshClaimedUntil = null, g.updatedAt = :now " +
+            "WHERE g.email = :email")
+    int updateAccessToken(@Param("email") String email,
+                          @Param("accessToken") byte[] accessToken,
+                          @Param("expiresAt") Instant expiresAt,
+                          @Param("refreshToken") byte[] refreshToken,
+                          @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE GmailGrant g SET g.lastUsedAt = :now WHERE g.email = :email")
+    int touch(@Param("email") String email, @Param("now") Instant now);
+}
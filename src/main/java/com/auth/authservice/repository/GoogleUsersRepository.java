@@ -1,13 +1,42 @@
 package com.auth.authservice.repository;
 
+import com.auth.authservice.dto.LoginIdentifiers;
 import com.auth.authservice.entities.GoogleUsers;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface GoogleUsersRepository extends JpaRepository<GoogleUsers, UUID> {
+    @Transactional(readOnly = true)
     public Optional<GoogleUsers> getByEmail(String email);
+
+    // Inserts a first-time user or returns the existing row, one statement and no race between concurrent first logins.
+    // The no-op update is what makes RETURNING yield an existing row, it leaves every indexed value unchanged (HOT update)
+    @Transactional
+    @Query(nativeQuery = true, value = "INSERT INTO \"google-users\" (id, username, email, role, created_date) " +
+            "VALUES (gen_random_uuid(), :username, :email, :role, :createdDate) " +
+            "ON CONFLICT (email) DO UPDATE SET email = EXCLUDED.email " +
+            "RETURNING *")
+    GoogleUsers upsertByEmail(@Param("username") String username,
+                              @Param("email") String email,
+                              @Param("role") String role,
+                              @Param("createdDate") LocalDate createdDate);
+
+    // Streamed with a server-side cursor, callers must consume it inside a transaction
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT g.username AS username, g.email AS email, g.createdAt AS createdAt FROM GoogleUsers g WHERE g.createdAt >= :since")
+    Stream<LoginIdentifiers> streamIdentifiersCreatedSince(@Param("since") Instant since);
 }
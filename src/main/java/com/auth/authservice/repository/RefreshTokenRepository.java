@@ -0,0 +1,36 @@
+package com.auth.authservice.repository;
+
+import com.auth.authservice.entities.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Marks the token used and returns it in one statement, only one of two concurrent redeems can win
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE refresh_tokens SET used = true " +
+            "WHERE token_hash = :tokenHash AND used = false AND revoked = false AND expires_at > now() " +
+            "RETURNING *")
+    Optional<RefreshToken> redeem(@Param("tokenHash") String tokenHash);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.familyId = :familyId")
+    int revokeFamily(@Param("familyId") UUID familyId);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM refresh_tokens WHERE id IN (" +
+            "SELECT id FROM refresh_tokens WHERE expires_at <= now() LIMIT :batchSize FOR UPDATE SKIP LOCKED)")
+    int deleteExpired(@Param("batchSize") int batchSize);
+}
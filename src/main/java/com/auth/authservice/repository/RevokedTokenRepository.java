@@ -0,0 +1,24 @@
+package com.auth.authservice.repository;
+
+import com.auth.authservice.entities.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    List<RevokedToken> findByRevokedAtGreaterThanEqualAndExpiresAtAfter(Instant revokedSince, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM revoked_tokens WHERE jti IN (" +
+            "SELECT jti FROM revoked_tokens WHERE expires_at <= now() LIMIT :batchSize FOR UPDATE SKIP LOCKED)")
+    int deleteExpired(@Param("batchSize") int batchSize);
+}
@@ -0,0 +1,25 @@
+package com.auth.authservice.repository;
+
+import com.auth.authservice.entities.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface SigningKeyRepository extends JpaRepository<SigningKey, String> {
+
+    List<SigningKey> findByExpiresAtAfterOrderByActivatesAtDesc(Instant now);
+
+    // Transaction scoped, serializes key rotation across instances
+    @Query(nativeQuery = true, value = "SELECT true FROM pg_advisory_xact_lock(:lockId)")
+    boolean lockRotation(@Param("lockId") long lockId);
+
+    @Modifying
+    @Query("DELETE FROM SigningKey k WHERE k.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
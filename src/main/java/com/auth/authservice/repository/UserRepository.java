@@ -1,26 +1,48 @@
 package com.auth.authservice.repository;
 
+import com.auth.authservice.dto.LoginIdentifiers;
+import com.auth.authservice.dto.UserCredentials;
 import com.auth.authservice.entities.Users;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface UserRepository extends JpaRepository<Users, UUID> {
+    // Declared queries get no transaction by default, read-only ones are what the replicas serve
+    @Transactional(readOnly = true)
     boolean existsByEmail(String email);
+    @Transactional(readOnly = true)
     boolean existsByUsername(String username);
 
+    @Transactional(readOnly = true)
     Optional<Users> getByUsername(String username);
+    @Transactional(readOnly = true)
     Optional<Users> getByEmail(String email);
 
-    @Query("SELECT u.password FROM Users u WHERE u.username = :username")
-    Optional<String> findByUsername(@Param("username") String username);
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.auth.authservice.dto.UserCredentials(u.username, u.email, u.password, r.roleName) " +
+            "FROM Users u JOIN u.role r WHERE u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
 
-    @Query("SELECT u.password FROM Users u WHERE u.email = :email")
-    Optional<String> findByEmail(@Param("email") String email);
-}
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.auth.authservice.dto.UserCredentials(u.username, u.email, u.password, r.roleName) " +
+            "FROM Users u JOIN u.role r WHERE u.email = :email")
+    Optional<UserCredentials> findCredentialsByEmail(@Param("email") String email);
 
+    // Streamed with a server-side cursor, callers must consume it inside a transaction
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u.username AS username, u.email AS email, u.createdAt AS createdAt FROM Users u WHERE u.createdAt >= :since")
+    Stream<LoginIdentifiers> streamIdentifiersCreatedSince(@Param("since") Instant since);
+}
@@ -1,32 +1,44 @@
 package com.auth.authservice.services;
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.dto.requestDto.RefreshTokenRequestDto;
 import com.auth.authservice.dto.requestDto.UserLoginRequestDto;
 import com.auth.authservice.dto.requestDto.UserRegistrationRequestDto;
 import com.auth.authservice.dto.responseDto.LoginResponseDto;
 import com.auth.authservice.entities.Role;
 import com.auth.authservice.entities.Users;
-import com.auth.authservice.enums.UserRole;
 import com.auth.authservice.jwt.JwtUtils;
-import com.auth.authservice.repository.RoleRepository;
+import com.auth.authservice.jwt.VerifiedTokenCache;
 import com.auth.authservice.repository.UserRepository;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class AuthService {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     @Autowired
     UserRepository userRepository;
 
     @Autowired
-    RoleRepository roleRepository;
+    RoleService roleService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    @Qualifier("applicationTaskExecutor")
+    private Executor applicationTaskExecutor;
 
     @Autowired
     private JwtUtils jwtUtils;
@@ -34,89 +46,123 @@ public class AuthService {
     @Autowired
     CustomUserDetailsService userDetailsService;
 
-    @Value("${app.default.role}")
-    private String defaultRole;
-
-
-    public Users register(UserRegistrationRequestDto userRegistrationRequestDto){
-
-        Role userRole = saveRole();
-        Integer userRoleId = userRole.getId();
-
-        try{
-            Users user = Users.builder()
-                    .firstName(userRegistrationRequestDto.getFirstName())
-                    .lastName(userRegistrationRequestDto.getLastName())
-                    .username(userRegistrationRequestDto.getUsername())
-                    .password(passwordEncoder.encode(userRegistrationRequestDto.getPassword()))
-                    .email(userRegistrationRequestDto.getEmail())
-                    .contactNumber(userRegistrationRequestDto.getContactNumber())
-                    .createdDate(LocalDate.now())
-                    .role(userRole)
-                    .build();
-
-            if(userRepository.existsByEmail(userRegistrationRequestDto.getEmail())){
-                throw new UserAlreadyExistsException("User already exists");
-            }
-            return userRepository.save(user);
-        }catch(UserAlreadyExistsException e){
-            throw e;
-        }catch(Exception e){
-            roleRepository.deleteById(userRoleId);
-            throw new RuntimeException("Registration failed due to an internal error");
+    @Autowired
+    KnownIdentifierFilter knownIdentifierFilter;
+
+    @Autowired
+    RefreshTokenService refreshTokenService;
+
+    @Autowired
+    TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    public CompletableFuture<Users> register(UserRegistrationRequestDto userRegistrationRequestDto){
+
+        // Checked before hashing so duplicate sign-ups never cost a BCrypt round,
+        // the identifier filter skips the query for emails that were definitely never registered
+        String email = userRegistrationRequestDto.getEmail();
+        boolean mayExist = !knownIdentifierFilter.isDefinitelyUnknown(email);
+        // Checked on the primary, a lagging replica would let a duplicate through to the insert
+        if(mayExist && readYourWrites.onPrimary(() -> userRepository.existsByEmail(email))){
+            throw new UserAlreadyExistsException("User already exists");
         }
+
+        // Cached reference loaded at startup, registration never writes the role row
+        Role userRole = roleService.getDefaultRole();
+
+        // Hashing runs on the bounded hashing pool, the insert is handed back to the application task executor
+        return passwordHashingService.encode(userRegistrationRequestDto.getPassword())
+                .thenApplyAsync(encodedPassword -> {
+                    try{
+                        Users user = Users.builder()
+                                .firstName(userRegistrationRequestDto.getFirstName())
+                                .lastName(userRegistrationRequestDto.getLastName())
+                                .username(userRegistrationRequestDto.getUsername())
+                                .password(encodedPassword)
+                                .email(userRegistrationRequestDto.getEmail())
+                                .contactNumber(userRegistrationRequestDto.getContactNumber())
+                                .createdDate(LocalDate.now())
+                                .role(userRole)
+                                .build();
+                        Users saved = userRepository.save(user);
+                        knownIdentifierFilter.add(saved.getUsername(), saved.getEmail());
+                        readYourWrites.recordWrite(saved.getUsername(), saved.getEmail());
+                        // Drop anything cached under these identifiers before the account is first used
+                        userDetailsService.evict(saved.getUsername());
+                        userDetailsService.evict(saved.getEmail());
+                        return saved;
+                    }catch(DataIntegrityViolationException e){
+                        // Raced with another sign-up, or the username is taken, which is not checked above
+                        if(isUniqueViolation(e)){
+                            throw new UserAlreadyExistsException("User already exists");
+                        }
+                        throw new RuntimeException("Registration failed due to an internal error");
+                    }catch(Exception e){
+                        throw new RuntimeException("Registration failed due to an internal error");
+                    }
+                }, applicationTaskExecutor);
     }
 
-    public Role saveRole(){
-        try{
-            UserRole enumRole = UserRole.valueOf(defaultRole);
-            Role userRole = Role.builder()
-                    .id(enumRole.ordinal())
-                    .roleName(enumRole)
-                    .build();
-            return roleRepository.save(userRole);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    public CompletableFuture<LoginResponseDto> basicLogin(UserLoginRequestDto userLoginRequestDto){
+        // Single round trip: the hash, username and role come back together
+        UserDetails user = userDetailsService.loadUserByUsername(userLoginRequestDto.getUsernameOrEmail());
+
+        // Only BCrypt runs on the hashing pool, the refresh-token insert and signing go back to the application task executor
+        return passwordHashingService.matches(userLoginRequestDto.getPassword(), user.getPassword())
+                .thenApplyAsync(matched -> {
+                    if(!matched){
+                        throw new IncorrectPasswordException("Incorrect credentials");
+                    }
+                    RefreshTokenService.Issued refreshToken = refreshTokenService.issue(user.getUsername());
+                    String token = jwtUtils.generateToken(user, refreshToken.familyId());
+                    return LoginResponseDto.builder()
+                            .success(true)
+                            .message("Login Successful")
+                            .token(token)
+                            .refreshToken(refreshToken.refreshToken())
+                            .expirationDate(jwtUtils.getExpiratonDate())
+                            .username(user.getUsername())
+                            .build();
+                }, applicationTaskExecutor);
     }
 
-    public LoginResponseDto basicLogin(UserLoginRequestDto userLoginRequestDto){
-        try{
-            if(!validateUser(userLoginRequestDto.getPassword(), userLoginRequestDto.getUsernameOrEmail())){
-                throw new IncorrectPasswordException("Incorrect credentials");
-            }
-            UserDetails user = userDetailsService.loadUserByUsername(userLoginRequestDto.getUsernameOrEmail());
-            String token = jwtUtils.generateToken(user);
-            return LoginResponseDto.builder()
-                    .success(true)
-                    .message("Login Successful")
-                    .token(token)
-                    .expirationDate(jwtUtils.getExpiratonDate())
-                    .username(user.getUsername())
-                    .build();
-
-        }catch(IncorrectPasswordException e){
-            throw e;
-        }catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+    // No password hash involved: one indexed update to rotate the refresh token and an HMAC for the new access token
+    public LoginResponseDto refresh(RefreshTokenRequestDto refreshTokenRequestDto){
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshTokenRequestDto.getRefreshToken());
+        UserDetails user = userDetailsService.loadUserByUsername(rotation.username());
+
+        return LoginResponseDto.builder()
+                .success(true)
+                .message("Token refreshed")
+                .token(jwtUtils.generateToken(user, rotation.familyId()))
+                .refreshToken(rotation.refreshToken())
+                .expirationDate(jwtUtils.getExpiratonDate())
+                .username(user.getUsername())
+                .build();
     }
 
-    private boolean validateUser(String rawPassword, String usernameOrEmail) {
-        // Fetch encoded password from DB
-        String encodedPasswordFromDb = isEmail(usernameOrEmail)
-                ? userRepository.findByEmail(usernameOrEmail)
-                .orElseThrow(() -> new RuntimeException("Password not found for email: " + usernameOrEmail))
-                : userRepository.findByUsername(usernameOrEmail)
-                .orElseThrow(() -> new RuntimeException("Password not found for username: " + usernameOrEmail));
+    // Revokes the presented access token until it would have expired anyway, and the refresh-token family it was issued with
+    public void logout(String token){
+        Claims claims = jwtUtils.parseClaims(token);
+        tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+        verifiedTokenCache.invalidate(token);
 
-        // Compare raw input password with encoded password from DB
-        return passwordEncoder.matches(rawPassword, encodedPasswordFromDb);
+        // Google logins and tokens issued before the claim existed carry no family
+        String sessionId = claims.get(JwtUtils.SESSION_CLAIM, String.class);
+        if(sessionId != null){
+            refreshTokenService.revokeFamily(UUID.fromString(sessionId));
+        }
     }
 
-    private boolean isEmail(String usernameOrEmail){
-        String emailRegex = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
-        return usernameOrEmail.matches(emailRegex);
+    // Hibernate reports Postgres unique violations without a constraint kind, so Spring cannot map them to DuplicateKeyException
+    private static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return e.getMostSpecificCause() instanceof SQLException sqlException
+                && UNIQUE_VIOLATION.equals(sqlException.getSQLState());
     }
 
     public static class UserAlreadyExistsException extends RuntimeException {
@@ -1,32 +1,87 @@
 package com.auth.authservice.services;
 
+import com.auth.authservice.datasource.ReadYourWrites;
 import com.auth.authservice.entities.GoogleUsers;
-import com.auth.authservice.entities.Users;
 import com.auth.authservice.repository.GoogleUsersRepository;
-import com.auth.authservice.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 @Service
 public class CustomGoogleUserDetailsService implements UserDetailsService {
 
     @Autowired
     GoogleUsersRepository googleUsersRepository;
 
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.user-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${app.user-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // Keyed by email only, the one identifier lookups use. A username can equal another user's email
+    private Cache<String, CachedGoogleUser> cache;
+
+    @PostConstruct
+    public void initCache() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "googleUserDetails");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
 
-        GoogleUsers googleUser = googleUsersRepository.getByEmail(email)
-                        .orElseThrow(() -> new UsernameNotFoundException("User not found with: " + email));
+        CachedGoogleUser googleUser = cache.getIfPresent(email);
+        if (googleUser == null) {
+            GoogleUsers entity = readYourWrites.find(email, () -> googleUsersRepository.getByEmail(email))
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with: " + email));
+            return remember(entity);
+        }
+
+        return toUserDetails(googleUser);
+    }
+
+    // For callers that already hold the row, such as the OAuth2 login upsert, caches it without another lookup
+    public UserDetails remember(GoogleUsers entity) {
+        CachedGoogleUser googleUser = new CachedGoogleUser(entity.getUsername(), entity.getEmail(), entity.getRole());
+        cache.put(googleUser.email(), googleUser);
+        return toUserDetails(googleUser);
+    }
 
+    private static UserDetails toUserDetails(CachedGoogleUser googleUser) {
         return User.builder()
-                .username(googleUser.getUsername())
-                .roles(googleUser.getRole())
+                .username(googleUser.username())
+                .roles(googleUser.role())
                 .password("")
                 .build();
     }
+
+    // Call after anything that changes a Google user's role or identifiers
+    public void evict(String email) {
+        cache.invalidate(email);
+    }
+
+    private record CachedGoogleUser(String username, String email, String role) {
+    }
 }
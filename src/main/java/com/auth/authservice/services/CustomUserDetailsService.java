@@ -1,31 +1,113 @@
 package com.auth.authservice.services;
 
-import com.auth.authservice.entities.Users;
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.dto.UserCredentials;
 import com.auth.authservice.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+
+    // Usernames and emails share one cache, so a username equal to another user's email needs its own key
+    private static final String USERNAME_KEY = "u:";
+    private static final String EMAIL_KEY = "e:";
+
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    KnownIdentifierFilter knownIdentifierFilter;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.user-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    // Upper bound on how long a changed role can still be served from the cache
+    @Value("${app.user-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // Every user is cached under both its username and its email, see cacheKey
+    private Cache<String, UserCredentials> cache;
+
+    @PostConstruct
+    public void initCache() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
 
-        Users user = userRepository.getByUsername(usernameOrEmail)
-                .orElseGet(() -> userRepository.getByEmail(usernameOrEmail)
-                        .orElseThrow(() -> new UsernameNotFoundException("User not found with: " + usernameOrEmail)));
+        UserCredentials user = cache.getIfPresent(cacheKey(usernameOrEmail));
+        if (user == null) {
+            // One query returns the password hash, username and role together
+            Supplier<Optional<UserCredentials>> query = () -> isEmail(usernameOrEmail)
+                    ? userRepository.findCredentialsByEmail(usernameOrEmail)
+                    : userRepository.findCredentialsByUsername(usernameOrEmail);
+
+            // Identifiers that were never registered are rejected without a query
+            if (knownIdentifierFilter.isDefinitelyUnknown(usernameOrEmail)) {
+                throw new UsernameNotFoundException("User not found with: " + usernameOrEmail);
+            }
+            Optional<UserCredentials> credentials = readYourWrites.find(usernameOrEmail, query);
+
+            user = credentials
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with: " + usernameOrEmail));
+            cache.put(USERNAME_KEY + user.username(), user);
+            cache.put(EMAIL_KEY + user.email(), user);
+        }
 
         return User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .roles(user.getRole().getRoleName().name())
+                .username(user.username())
+                .password(user.password())
+                .roles(user.roleName().name())
                 .build();
     }
+
+    // Call after anything that changes a user's password, role or identifiers
+    public void evict(String usernameOrEmail) {
+        String key = cacheKey(usernameOrEmail);
+        UserCredentials cached = cache.getIfPresent(key);
+        cache.invalidate(key);
+        if (cached != null) {
+            cache.invalidate(USERNAME_KEY + cached.username());
+            cache.invalidate(EMAIL_KEY + cached.email());
+        }
+    }
+
+    // Same split as the query: whatever looks like an email is looked up, and cached, as one
+    private static String cacheKey(String usernameOrEmail) {
+        return (isEmail(usernameOrEmail) ? EMAIL_KEY : USERNAME_KEY) + usernameOrEmail;
+    }
+
+    private static boolean isEmail(String usernameOrEmail) {
+        return EMAIL_PATTERN.matcher(usernameOrEmail).matches();
+    }
 }
@@ -0,0 +1,302 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.crypto.AesGcmCipher;
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.entities.GmailGrant;
+import com.auth.authservice.repository.GmailGrantRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.RestClientRefreshTokenTokenResponseClient;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps users' Gmail grants server-side and hands out access tokens that are still valid. Tokens are
+ * refreshed by a scheduler shortly before they expire, so callers normally get one straight from memory.
+ * Concurrent requests for a user whose token does need refreshing share a single call to Google.
+ */
+@Slf4j
+@Service
+public class GmailTokenService {
+
+    private static final String REGISTRATION_ID = "gmail";
+
+    @Autowired
+    GmailGrantRepository gmailGrantRepository;
+
+    @Autowired
+    private AesGcmCipher cipher;
+
+    @Autowired
+    private ClientRegistrationRepository clientRegistrationRepository;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Tokens are refreshed this long before they expire
+    @Value("${app.gmail.refresh-ahead-ms:300000}")
+    private long refreshAheadMs;
+
+    // A token handed out is good for at least this long
+    @Value("${app.gmail.min-validity-ms:60000}")
+    private long minValidityMs;
+
+    @Value("${app.gmail.active-window-ms:86400000}")
+    private long activeWindowMs;
+
+    @Value("${app.gmail.refresh-batch-size:100}")
+    private int refreshBatchSize;
+
+    @Value("${app.gmail.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${app.gmail.token-endpoint-timeout-ms:5000}")
+    private int tokenEndpointTimeoutMs;
+
+    private final Map<String, CompletableFuture<AccessToken>> inFlight = new ConcurrentHashMap<>();
+    private Cache<String, AccessToken> cache;
+    private RestClientRefreshTokenTokenResponseClient tokenResponseClient;
+    private Counter refreshes;
+    private Counter coalesced;
+
+    @PostConstruct
+    public void init() {
+        // An entry lives until its token is too close to expiry to hand out
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, AccessToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, AccessToken value, long currentTime) {
+                        return Math.max(0, value.expiresAt().toEpochMilli() - minValidityMs - System.currentTimeMillis()) * 1_000_000;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, AccessToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, AccessToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gmailAccessTokens");
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(tokenEndpointTimeoutMs);
+        requestFactory.setReadTimeout(tokenEndpointTimeoutMs);
+        tokenResponseClient = new RestClientRefreshTokenTokenResponseClient();
+        tokenResponseClient.setRestClient(RestClient.builder()
+                .requestFactory(requestFactory)
+                .messageConverters(converters -> {
+                    converters.clear();
+                    converters.add(new FormHttpMessageConverter());
+                    converters.add(new OAuth2AccessTokenResponseHttpMessageConverter());
+                })
+                .defaultStatusHandler(new OAuth2ErrorResponseErrorHandler())
+                .build());
+
+        refreshes = Counter.builder("auth.gmail.token.refreshes")
+                .description("Gmail access tokens refreshed at Google")
+                .register(meterRegistry);
+        coalesced = Counter.builder("auth.gmail.token.refreshes.coalesced")
+                .description("Requests that waited on a refresh already in flight for the same user")
+                .register(meterRegistry);
+    }
+
+    // Called once the user has connected Gmail, replaces any earlier grant for the address
+    public void store(String email, OAuth2AuthorizedClient client) {
+        OAuth2AccessToken accessToken = client.getAccessToken();
+        OAuth2RefreshToken refreshToken = client.getRefreshToken();
+        Instant expiresAt = accessToken.getExpiresAt() != null ? accessToken.getExpiresAt() : Instant.now().plusSeconds(3600);
+
+        gmailGrantRepository.upsert(email,
+                encrypt(email, accessToken.getTokenValue()),
+                expiresAt,
+                refreshToken == null ? null : encrypt(email, refreshToken.getTokenValue()),
+                String.join(" ", accessToken.getScopes()),
+                Instant.now());
+        cache.put(email, new AccessToken(email, accessToken.getTokenValue(), expiresAt));
+    }
+
+    public AccessToken accessToken(String email) {
+        AccessToken cached = cache.getIfPresent(email);
+        if (cached != null && isUsable(cached.expiresAt())) {
+            return cached;
+        }
+        return singleFlight(email, () -> {
+            // Another node may have stored or refreshed the grant, the primary has the latest tokens
+            GmailGrant grant = readYourWrites.onPrimary(() -> gmailGrantRepository.findById(email))
+                    .orElseThrow(() -> new GrantNotFoundException("No Gmail grant for " + email));
+            gmailGrantRepository.touch(email, Instant.now());
+            if (isUsable(grant.getAccessTokenExpiresAt())) {
+                AccessToken stored = new AccessToken(email, decrypt(email, grant.getAccessToken()), grant.getAccessTokenExpiresAt());
+                cache.put(email, stored);
+                return stored;
+            }
+            return refresh(grant);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.gmail.refresh-interval-ms:60000}")
+    public void refreshExpiring() {
+        List<String> due;
+        do {
+            // Grants are refreshed one after another, each call may hang for the connect and the read timeout.
+            // The claim covers the whole batch that way, so no other node picks these grants up meanwhile
+            Instant now = Instant.now();
+            Instant claimUntil = now.plusMillis(2L * tokenEndpointTimeoutMs * refreshBatchSize);
+            due = gmailGrantRepository.claimDueForRefresh(now.plusMillis(refreshAheadMs), now.minusMillis(activeWindowMs),
+                    now, claimUntil, refreshBatchSize);
+            for (String email : due) {
+                if (!Instant.now().isBefore(claimUntil)) {
+                    // Slower than any timeout allows for, the rest may already be claimed elsewhere
+                    log.warn("Gmail refresh batch outlived its claim, leaving the remaining grants to the next run");
+                    return;
+                }
+                try {
+                    singleFlight(email, () -> gmailGrantRepository.findById(email)
+                            .map(this::refresh)
+                            .orElseThrow(() -> new GrantNotFoundException("No Gmail grant for " + email)));
+                } catch (RuntimeException e) {
+                    log.warn("Background Gmail token refresh failed for {}: {}", email, e.getMessage());
+                }
+            }
+        } while (due.size() == refreshBatchSize);
+    }
+
+    private AccessToken refresh(GmailGrant grant) {
+        String email = grant.getEmail();
+        if (grant.getRefreshToken() == null) {
+            throw new GrantNotFoundException("Gmail grant for " + email + " has no refresh token");
+        }
+        ClientRegistration registration = clientRegistrationRepository.findByRegistrationId(REGISTRATION_ID);
+        OAuth2AccessToken expired = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                decrypt(email, grant.getAccessToken()), null, grant.getAccessTokenExpiresAt(), scopes(grant));
+        OAuth2RefreshToken refreshToken = new OAuth2RefreshToken(decrypt(email, grant.getRefreshToken()), null);
+
+        OAuth2AccessTokenResponse response;
+        try {
+            response = tokenResponseClient.getTokenResponse(new OAuth2RefreshTokenGrantRequest(registration, expired, refreshToken));
+        } catch (OAuth2AuthorizationException e) {
+            // Refresh tokens Google no longer accepts are dropped, the user has to connect Gmail again
+            if (OAuth2ErrorCodes.INVALID_GRANT.equals(e.getError().getErrorCode())) {
+                gmailGrantRepository.deleteById(email);
+                cache.invalidate(email);
+                throw new GrantNotFoundException("Gmail access was revoked for " + email);
+            }
+            throw new TokenRefreshFailedException("Gmail token refresh failed for " + email, e);
+        }
+        refreshes.increment();
+
+        OAuth2AccessToken accessToken = response.getAccessToken();
+        Instant expiresAt = accessToken.getExpiresAt() != null ? accessToken.getExpiresAt() : Instant.now().plusSeconds(3600);
+        // Google normally keeps the refresh token, a rotated one replaces it
+        OAuth2RefreshToken rotated = response.getRefreshToken();
+        gmailGrantRepository.updateAccessToken(email,
+                encrypt(email, accessToken.getTokenValue()),
+                expiresAt,
+                rotated == null ? grant.getRefreshToken() : encrypt(email, rotated.getTokenValue()),
+                Instant.now());
+
+        AccessToken refreshed = new AccessToken(email, accessToken.getTokenValue(), expiresAt);
+        cache.put(email, refreshed);
+        return refreshed;
+    }
+
+    // The first caller for an email does the work, everyone arriving meanwhile waits for its result
+    private AccessToken singleFlight(String email, Supplier<AccessToken> work) {
+        CompletableFuture<AccessToken> mine = new CompletableFuture<>();
+        CompletableFuture<AccessToken> running = inFlight.putIfAbsent(email, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            AccessToken result = work.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(email, mine);
+        }
+    }
+
+    private boolean isUsable(Instant expiresAt) {
+        return expiresAt.isAfter(Instant.now().plusMillis(minValidityMs));
+    }
+
+    private static Set<String> scopes(GmailGrant grant) {
+        return grant.getScopes() == null || grant.getScopes().isBlank() ? Set.of() : Set.of(grant.getScopes().split(" "));
+    }
+
+    private byte[] encrypt(String email, String token) {
+        return cipher.encrypt(token.getBytes(StandardCharsets.UTF_8), associatedData(email));
+    }
+
+    private String decrypt(String email, byte[] encrypted) {
+        return new String(cipher.decrypt(encrypted, associatedData(email)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] associatedData(String email) {
+        return ("gmail:" + email).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public record AccessToken(String email, String tokenValue, Instant expiresAt) {
+    }
+
+    public static class GrantNotFoundException extends RuntimeException {
+        public GrantNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    public static class TokenRefreshFailedException extends RuntimeException {
+        public TokenRefreshFailedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.auth.authservice.services;
 
+import com.auth.authservice.dto.responseDto.GmailAccessTokenDto;
 import com.auth.authservice.dto.responseDto.LoginResponseDto;
 import com.auth.authservice.google.CodeStore;
 import com.auth.authservice.jwt.JwtUtils;
+import com.auth.authservice.jwt.VerifiedTokenCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+
 @Service
 public class GoogleAuthService {
 
@@ -15,6 +20,9 @@ public class GoogleAuthService {
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    GmailTokenService gmailTokenService;
+
     public LoginResponseDto getJwtFromAccessCode(String code){
         try{
             String token = codeStore.getToken("googleLogin", code);
@@ -30,24 +38,35 @@ public class GoogleAuthService {
         }
     }
 
+    // Only the access token, the refresh token stays server-side. Clients renew through /google/gmail-access-token
     public LoginResponseDto getGmailTokens(String code){
         try{
-            String token = codeStore.getToken("gmail", code);
-            String[] tokens = token.split("_&&_");
-            String accessToken = tokens[0];
-            String refreshToken = tokens[1];
-            String username = tokens[2];
+            String email = codeStore.getToken("gmail", code);
+            GmailTokenService.AccessToken accessToken = gmailTokenService.accessToken(email);
 
             return LoginResponseDto.builder()
                     .success(true)
                     .message("Login successful")
-                    .token(accessToken)
-                    .refreshToken(refreshToken)
-                    .username(username)
-                    .expirationDate(jwtUtils.getExpiratonDate())
+                    .token(accessToken.tokenValue())
+                    .username(email)
+                    .expirationDate(Date.from(accessToken.expiresAt()))
                     .build();
         }catch (Exception e){
             throw new RuntimeException(e);
         }
     }
+
+    // The grant is looked up by the Google address signed into the token, never by the shared username
+    public GmailAccessTokenDto getGmailAccessToken(VerifiedTokenCache.VerifiedToken principal){
+        String email = principal.googleEmail();
+        if (email == null) {
+            throw new AccessDeniedException("Token was not issued for a Google account");
+        }
+        GmailTokenService.AccessToken accessToken = gmailTokenService.accessToken(email);
+        return GmailAccessTokenDto.builder()
+                .email(email)
+                .accessToken(accessToken.tokenValue())
+                .expiresAt(Date.from(accessToken.expiresAt()))
+                .build();
+    }
 }
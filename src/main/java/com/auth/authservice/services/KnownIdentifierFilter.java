@@ -0,0 +1,251 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.dto.LoginIdentifiers;
+import com.auth.authservice.repository.GoogleUsersRepository;
+import com.auth.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over every username and email in Users and GoogleUsers. A negative answer covers the
+ * accounts this node has seen: its own inserts and whatever the last rescan found. Accounts created
+ * since by other nodes or by the reactive service are picked up by the periodic rescan, or by a
+ * catch-up rescan that a miss triggers when the filter is older than the catch-up interval.
+ * Accounts are never deleted, so a plain (non-counting) filter is enough.
+ */
+@Slf4j
+@Service
+public class KnownIdentifierFilter {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    GoogleUsersRepository googleUsersRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.identifier-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.identifier-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${app.identifier-filter.fpp:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.identifier-filter.refresh-interval-ms:10000}")
+    private long refreshIntervalMs;
+
+    // created_at is the inserting transaction's start, a row can commit after a later-stamped one was already read
+    @Value("${app.identifier-filter.rescan-overlap-ms:10000}")
+    private long rescanOverlapMs;
+
+    // A miss on a filter older than this rescans first, at most one rescan per interval however many misses arrive
+    @Value("${app.identifier-filter.catch-up-interval-ms:1000}")
+    private long catchUpIntervalMs;
+
+    private TransactionTemplate readOnlyTransaction;
+    private AtomicLongArray bits;
+    private long bitCount;
+    private int hashCount;
+    private final AtomicLong setBits = new AtomicLong();
+    private Counter rejections;
+    // Held by every rescan, concurrent misses wait for one catch-up instead of each running their own
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    // Newest created_at seen so far, the next rescan starts rescan-overlap-ms before it. Null until the first scan
+    private volatile Instant highWaterMark;
+    private volatile long lastRefreshMillis;
+    private volatile long lastAttemptMillis;
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        bitCount = Math.max(64, (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) / 64));
+        bitCount = bits.length() * 64L;
+
+        long loaded = refresh();
+
+        Gauge.builder("auth.identifier.filter.memory", this, f -> f.bits.length() * 8.0)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("auth.identifier.filter.fpp", this, KnownIdentifierFilter::estimatedFalsePositiveRate)
+                .description("Current false-positive probability estimated from the fill ratio")
+                .register(meterRegistry);
+        rejections = Counter.builder("auth.identifier.filter.rejections")
+                .description("Identifiers rejected as unknown without a query")
+                .register(meterRegistry);
+
+        log.info("Identifier filter loaded {} identifiers: {} KiB, {} hashes, target fpp {}, estimated fpp {}",
+                loaded, bits.length() / 128, hashCount, falsePositiveRate, String.format("%.5f", estimatedFalsePositiveRate()));
+    }
+
+    // Picks up accounts inserted by other nodes and the reactive service. Only rows created since the high-water
+    // mark (minus the overlap) are read, an index range scan on created_at.
+    // Reads the primary, a lagging replica would leave the filter further behind than the interval
+    @Scheduled(fixedDelayString = "${app.identifier-filter.refresh-interval-ms:10000}",
+            initialDelayString = "${app.identifier-filter.refresh-interval-ms:10000}")
+    public long refresh() {
+        if (!enabled) {
+            return 0;
+        }
+        refreshLock.lock();
+        try {
+            Instant mark = highWaterMark;
+            Instant since = mark == null ? Instant.EPOCH : mark.minusMillis(rescanOverlapMs);
+            AtomicReference<Instant> newest = new AtomicReference<>(mark);
+            long startedAt = System.currentTimeMillis();
+            lastAttemptMillis = startedAt;
+            Long added = readYourWrites.onPrimary(() -> readOnlyTransaction.execute(status -> {
+                long count = addAll(userRepository.streamIdentifiersCreatedSince(since), newest);
+                return count + addAll(googleUsersRepository.streamIdentifiersCreatedSince(since), newest);
+            }));
+            highWaterMark = newest.get();
+            lastRefreshMillis = startedAt;
+            return added == null ? 0 : added;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // True when the identifier was never registered, so the caller can reject it without a query.
+    // Only an account created elsewhere within the last catch-up interval can be missed. A filter whose
+    // rescans keep failing stops answering, the database decides until a rescan succeeds again
+    public boolean isDefinitelyUnknown(String identifier) {
+        if (mightContain(identifier)) {
+            return false;
+        }
+        if (System.currentTimeMillis() - lastRefreshMillis > catchUpIntervalMs) {
+            catchUp();
+            if (mightContain(identifier)) {
+                return false;
+            }
+        }
+        if (System.currentTimeMillis() - lastRefreshMillis > 2 * refreshIntervalMs) {
+            return false;
+        }
+        rejections.increment();
+        return true;
+    }
+
+    public boolean mightContain(String identifier) {
+        if (!enabled || identifier == null) {
+            return true;
+        }
+        long h1 = hash(identifier);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void catchUp() {
+        refreshLock.lock();
+        try {
+            // Another miss may have rescanned while this one waited, and a failed attempt is not retried right away
+            long now = System.currentTimeMillis();
+            if (now - lastRefreshMillis > catchUpIntervalMs && now - lastAttemptMillis > catchUpIntervalMs) {
+                refresh();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Identifier filter catch-up rescan failed: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    public void add(String username, String email) {
+        if (!enabled) {
+            return;
+        }
+        put(username);
+        put(email);
+    }
+
+    private long addAll(Stream<LoginIdentifiers> identifiers, AtomicReference<Instant> newest) {
+        AtomicLong count = new AtomicLong();
+        try (identifiers) {
+            identifiers.forEach(id -> {
+                add(id.getUsername(), id.getEmail());
+                count.incrementAndGet();
+                Instant createdAt = id.getCreatedAt();
+                if (createdAt != null && (newest.get() == null || createdAt.isAfter(newest.get()))) {
+                    newest.set(createdAt);
+                }
+            });
+        }
+        return count.get();
+    }
+
+    private void put(String identifier) {
+        if (identifier == null) {
+            return;
+        }
+        long h1 = hash(identifier);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << index;
+            long previous = bits.getAndAccumulate((int) (index >>> 6), mask, (current, m) -> current | m);
+            if ((previous & mask) == 0) {
+                setBits.incrementAndGet();
+            }
+        }
+    }
+
+    private double estimatedFalsePositiveRate() {
+        return Math.pow((double) setBits.get() / bitCount, hashCount);
+    }
+
+    // FNV-1a over the UTF-16 chars followed by a SplitMix64 finaliser
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
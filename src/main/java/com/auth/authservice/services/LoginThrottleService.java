@@ -0,0 +1,113 @@
+package com.auth.authservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token buckets per account and per client IP, checked before any password hashing happens.
+ * Buckets are lock-free and live in size-bounded caches that drop them once they go idle.
+ */
+@Service
+public class LoginThrottleService {
+
+    private final Limiter accountLimiter;
+    private final Limiter ipLimiter;
+
+    public LoginThrottleService(MeterRegistry meterRegistry,
+                                @Value("${app.login-throttle.account.capacity:5}") int accountCapacity,
+                                @Value("${app.login-throttle.account.refill-per-minute:5}") int accountRefillPerMinute,
+                                @Value("${app.login-throttle.ip.capacity:20}") int ipCapacity,
+                                @Value("${app.login-throttle.ip.refill-per-minute:60}") int ipRefillPerMinute,
+                                @Value("${app.login-throttle.max-tracked-keys:100000}") long maxTrackedKeys) {
+        this.accountLimiter = new Limiter(accountCapacity, accountRefillPerMinute, maxTrackedKeys,
+                Counter.builder("auth.login.throttled").tag("key", "account").register(meterRegistry));
+        this.ipLimiter = new Limiter(ipCapacity, ipRefillPerMinute, maxTrackedKeys,
+                Counter.builder("auth.login.throttled").tag("key", "ip").register(meterRegistry));
+    }
+
+    public void checkLogin(String usernameOrEmail, String clientIp) {
+        long waitNanos = ipLimiter.tryAcquire(clientIp);
+        if (waitNanos == 0 && usernameOrEmail != null) {
+            waitNanos = accountLimiter.tryAcquire(usernameOrEmail);
+        }
+        if (waitNanos > 0) {
+            throw new TooManyAttemptsException(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+        }
+    }
+
+    private static final class Limiter {
+
+        private final int capacity;
+        private final double tokensPerNano;
+        private final Cache<String, Bucket> buckets;
+        private final Counter throttled;
+
+        Limiter(int capacity, int refillPerMinute, long maxKeys, Counter throttled) {
+            this.capacity = capacity;
+            this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.throttled = throttled;
+            // A bucket idle long enough to refill completely carries no state worth keeping
+            long refillNanos = (long) Math.ceil(capacity / tokensPerNano);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofNanos(refillNanos))
+                    .build();
+        }
+
+        // Returns 0 when a token was taken, otherwise the nanos until one becomes available
+        long tryAcquire(String key) {
+            long wait = buckets.get(key, k -> new Bucket(capacity)).tryAcquire(capacity, tokensPerNano);
+            if (wait > 0) {
+                throttled.increment();
+            }
+            return wait;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final AtomicReference<State> state;
+
+        Bucket(int capacity) {
+            this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+        }
+
+        long tryAcquire(int capacity, double tokensPerNano) {
+            while (true) {
+                State current = state.get();
+                long now = System.nanoTime();
+                double tokens = Math.min(capacity, current.tokens() + (now - current.updatedAt()) * tokensPerNano);
+                if (tokens < 1) {
+                    return (long) Math.ceil((1 - tokens) / tokensPerNano);
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private record State(double tokens, long updatedAt) {
+    }
+
+    public static class TooManyAttemptsException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public TooManyAttemptsException(long retryAfterSeconds) {
+            super("Too many login attempts");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
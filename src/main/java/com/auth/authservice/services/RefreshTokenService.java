@@ -0,0 +1,112 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.entities.RefreshToken;
+import com.auth.authservice.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Opaque, single-use refresh tokens. Each redeem rotates the token within its family. Presenting an
+ * already-rotated token means it leaked, so the whole family is revoked.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh.expiration:1209600000}")
+    private long refreshExpirationInMs;
+
+    @Value("${jwt.refresh.cleanup-batch-size:1000}")
+    private int cleanupBatchSize;
+
+    // Starts a new family, the caller puts its id in the access token so logout can revoke it
+    public Issued issue(String username) {
+        UUID familyId = UUID.randomUUID();
+        return new Issued(familyId, issue(username, familyId));
+    }
+
+    // Returns the username the token belonged to and a replacement token from the same family
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public Rotation rotate(String rawToken) {
+        String tokenHash = hash(rawToken);
+
+        Optional<RefreshToken> redeemed = refreshTokenRepository.redeem(tokenHash);
+        if (redeemed.isEmpty()) {
+            // Only failed redeems pay for this lookup
+            refreshTokenRepository.findByTokenHash(tokenHash)
+                    .filter(token -> token.isUsed() && !token.isRevoked())
+                    .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+            throw new InvalidRefreshTokenException("Refresh token is invalid or expired");
+        }
+
+        RefreshToken token = redeemed.get();
+        return new Rotation(token.getUsername(), token.getFamilyId(), issue(token.getUsername(), token.getFamilyId()));
+    }
+
+    // Every token of the family stops redeeming, including the one the client currently holds
+    public void revokeFamily(UUID familyId) {
+        refreshTokenRepository.revokeFamily(familyId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        int deleted;
+        do {
+            deleted = refreshTokenRepository.deleteExpired(cleanupBatchSize);
+        } while (deleted == cleanupBatchSize);
+    }
+
+    private String issue(String username, UUID familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Instant now = Instant.now();
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(rawToken))
+                .familyId(familyId)
+                .username(username)
+                .expiresAt(now.plusMillis(refreshExpirationInMs))
+                .createdAt(now)
+                .build());
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Issued(UUID familyId, String refreshToken) {
+    }
+
+    public record Rotation(String username, UUID familyId, String refreshToken) {
+    }
+
+    public static class InvalidRefreshTokenException extends RuntimeException {
+        public InvalidRefreshTokenException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.entities.Role;
+import com.auth.authservice.enums.UserRole;
+import com.auth.authservice.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Role rows never change at runtime, so they are loaded (and seeded if missing) once at startup
+ * and handed out as cached references instead of being written on every registration.
+ */
+@Slf4j
+@Service
+public class RoleService {
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @Autowired
+    ReadYourWrites readYourWrites;
+
+    @Value("${app.default.role}")
+    private String defaultRoleName;
+
+    private final Map<UserRole, Role> roles = new EnumMap<>(UserRole.class);
+    private Role defaultRole;
+
+    @PostConstruct
+    public void loadRoles() {
+        // Seeding may race with other instances, so reads here must see the primary's rows
+        readYourWrites.onPrimary(() -> {
+            loadAndSeed();
+            return null;
+        });
+        defaultRole = getRole(UserRole.valueOf(defaultRoleName));
+    }
+
+    private void loadAndSeed() {
+        roleRepository.findAll().forEach(role -> roles.put(role.getRoleName(), role));
+
+        for (UserRole userRole : UserRole.values()) {
+            if (!roles.containsKey(userRole)) {
+                seed(userRole).ifPresent(role -> roles.put(userRole, role));
+            }
+        }
+    }
+
+    public Role getRole(UserRole userRole) {
+        return roles.get(userRole);
+    }
+
+    public Role getDefaultRole() {
+        return defaultRole;
+    }
+
+    private Optional<Role> seed(UserRole userRole) {
+        Role role = Role.builder()
+                .id(userRole.ordinal())
+                .roleName(userRole)
+                .build();
+        try {
+            return Optional.of(roleRepository.save(role));
+        } catch (DataIntegrityViolationException e) {
+            // Another node seeded the same row first
+            Optional<Role> seeded = roleRepository.findById(userRole.ordinal());
+            if (seeded.isEmpty()) {
+                // Hibernate's check constraint on role_name predates this value, see the README
+                log.warn("Could not seed role {}, it stays unavailable: {}", userRole, e.getMostSpecificCause().getMessage());
+            }
+            return seeded;
+        }
+    }
+}
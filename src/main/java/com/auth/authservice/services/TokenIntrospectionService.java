@@ -0,0 +1,165 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.dto.responseDto.TokenIntrospectionDto;
+import com.auth.authservice.jwt.TokenVerifier;
+import com.auth.authservice.jwt.VerifiedTokenCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies batches of access tokens for the API gateway. The batch is split into chunks that are
+ * verified in parallel, and results are written as a JSON array in request order, one chunk at a time,
+ * so the response starts before the last chunk is done and the whole result is never held in memory.
+ * Chunks run on a bounded pool of their own. The streaming thread waiting on them belongs to
+ * applicationTaskExecutor, so sharing that pool could leave every worker waiting on queued chunks.
+ */
+@Service
+public class TokenIntrospectionService {
+
+    private static final TokenIntrospectionDto INACTIVE = TokenIntrospectionDto.builder().active(false).build();
+
+    @Autowired
+    TokenVerifier tokenVerifier;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ObjectWriter resultWriter;
+    private ThreadPoolExecutor executor;
+
+    @Value("${app.introspection.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${app.introspection.chunk-size:100}")
+    private int chunkSize;
+
+    // 0 = one thread per available processor, verification is CPU-bound
+    @Value("${app.introspection.threads:0}")
+    private int threads;
+
+    @Value("${app.introspection.queue-capacity:64}")
+    private int queueCapacity;
+
+    @PostConstruct
+    public void init() {
+        // Flushed once per chunk instead of after every token
+        resultWriter = objectMapper.writerFor(TokenIntrospectionDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("token-introspection-");
+        threadFactory.setDaemon(true);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "tokenIntrospection", List.of()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public void checkBatchSize(List<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            throw new InvalidBatchException("At least one token is required");
+        }
+        if (tokens.size() > maxBatchSize) {
+            throw new BatchTooLargeException("At most " + maxBatchSize + " tokens per request");
+        }
+    }
+
+    public void introspect(List<String> tokens, OutputStream out) throws IOException {
+        // Submit every chunk up front so they all verify while earlier ones are being written
+        List<CompletableFuture<List<TokenIntrospectionDto>>> chunks = new ArrayList<>((tokens.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < tokens.size(); from += chunkSize) {
+            List<String> chunk = tokens.subList(from, Math.min(from + chunkSize, tokens.size()));
+            // A single chunk is cheaper to verify right here than to hand to another thread
+            chunks.add(tokens.size() <= chunkSize
+                    ? CompletableFuture.completedFuture(introspectChunk(chunk))
+                    : submitChunk(chunk));
+        }
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (CompletableFuture<List<TokenIntrospectionDto>> chunk : chunks) {
+                for (TokenIntrospectionDto result : chunk.join()) {
+                    resultWriter.writeValue(generator, result);
+                }
+                generator.flush();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    // Chunk tasks never wait on anything, and once the queue is full the caller verifies the chunk itself,
+    // so a burst of large batches slows down rather than queueing without bound
+    private CompletableFuture<List<TokenIntrospectionDto>> submitChunk(List<String> chunk) {
+        try {
+            return CompletableFuture.supplyAsync(() -> introspectChunk(chunk), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(introspectChunk(chunk));
+        }
+    }
+
+    private List<TokenIntrospectionDto> introspectChunk(List<String> tokens) {
+        List<TokenIntrospectionDto> results = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            results.add(introspect(token));
+        }
+        return results;
+    }
+
+    private TokenIntrospectionDto introspect(String token) {
+        VerifiedTokenCache.VerifiedToken verified = token == null ? null : tokenVerifier.verify(token);
+        if (verified == null) {
+            return INACTIVE;
+        }
+        List<String> roles = new ArrayList<>(verified.authorities().size());
+        for (GrantedAuthority authority : verified.authorities()) {
+            roles.add(authority.getAuthority());
+        }
+        return TokenIntrospectionDto.builder()
+                .active(true)
+                .sub(verified.username())
+                .roles(roles)
+                .exp(verified.expiresAt().getEpochSecond())
+                .jti(verified.jti())
+                .build();
+    }
+
+    public static class InvalidBatchException extends RuntimeException {
+        public InvalidBatchException(String message) {
+            super(message);
+        }
+    }
+
+    public static class BatchTooLargeException extends RuntimeException {
+        public BatchTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.entities.RevokedToken;
+import com.auth.authservice.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Revoked access tokens, checked on every authenticated request without a database lookup.
+ * Entries are dropped as soon as the token would have expired, so memory only grows with
+ * revoked tokens that are still live. Other nodes' revocations arrive by polling the persisted log.
+ */
+@Service
+public class TokenRevocationService {
+
+    @Autowired
+    RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Rows revoked up to this long before the previous poll are read again, covering clock skew and late commits
+    @Value("${jwt.revocation.poll-overlap-ms:60000}")
+    private long pollOverlapMs;
+
+    @Value("${jwt.revocation.cleanup-batch-size:1000}")
+    private int cleanupBatchSize;
+
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    private final NavigableSet<Entry> byExpiry = new ConcurrentSkipListSet<>(
+            Comparator.comparing(Entry::expiresAt).thenComparing(Entry::jti));
+    private volatile Instant lastPoll = Instant.EPOCH;
+
+    @PostConstruct
+    public void load() {
+        poll();
+        Gauge.builder("auth.token.revocations", revoked, Set::size)
+                .description("Revoked access tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.contains(jti);
+    }
+
+    public void revoke(String jti, Instant expiresAt) {
+        if (jti == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        revokedTokenRepository.save(RevokedToken.builder()
+                .jti(jti)
+                .expiresAt(expiresAt)
+                .revokedAt(Instant.now())
+                .build());
+        remember(jti, expiresAt);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.poll-interval-ms:5000}",
+            initialDelayString = "${jwt.revocation.poll-interval-ms:5000}")
+    public void poll() {
+        Instant now = Instant.now();
+        Instant since = lastPoll.equals(Instant.EPOCH) ? Instant.EPOCH : lastPoll.minusMillis(pollOverlapMs);
+        for (RevokedToken token : revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(since, now)) {
+            remember(token.getJti(), token.getExpiresAt());
+        }
+        lastPoll = now;
+        evictExpired(now);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        int deleted;
+        do {
+            deleted = revokedTokenRepository.deleteExpired(cleanupBatchSize);
+        } while (deleted == cleanupBatchSize);
+    }
+
+    private void remember(String jti, Instant expiresAt) {
+        if (revoked.add(jti)) {
+            byExpiry.add(new Entry(expiresAt, jti));
+        }
+    }
+
+    // Walks the expiry-ordered set from the oldest entry and stops at the first live one
+    private void evictExpired(Instant now) {
+        Iterator<Entry> oldestFirst = byExpiry.iterator();
+        while (oldestFirst.hasNext()) {
+            Entry entry = oldestFirst.next();
+            if (entry.expiresAt().isAfter(now)) {
+                return;
+            }
+            oldestFirst.remove();
+            revoked.remove(entry.jti());
+        }
+    }
+
+    private record Entry(Instant expiresAt, String jti) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.auth.authservice.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two independent databases stand in for a primary and its replica, each one labels itself
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingDataSourceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16");
+
+    @Container
+    static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16");
+
+    private ReplicaRoutingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        label(primary, "primary");
+        label(replica, "replica");
+
+        dataSource = new ReplicaRoutingDataSource(pool(primary), List.of(pool(replica)));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        assertEquals("replica", readOnly.execute(status -> servedBy()));
+    }
+
+    @Test
+    void writesAndNonTransactionalCallsUseThePrimary() {
+        assertEquals("primary", readWrite.execute(status -> servedBy()));
+        assertEquals("primary", servedBy());
+    }
+
+    @Test
+    void onPrimaryOverridesReadOnlyRouting() {
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> readOnly.execute(status -> servedBy())));
+        assertEquals("replica", readOnly.execute(status -> servedBy()));
+    }
+
+    @Test
+    void readYourWritesUsesThePrimaryOnlyForRecentWrites() {
+        ReadYourWrites readYourWrites = new ReadYourWrites(List.of("jdbc:postgresql://replica"), 5000, 100);
+        readYourWrites.recordWrite("fresh-user");
+
+        assertEquals("primary", readYourWrites.find("fresh-user", this::servedByReadOnly).orElseThrow());
+        assertEquals("replica", readYourWrites.find("old-user", this::servedByReadOnly).orElseThrow());
+        // A replica miss is not retried on the primary
+        assertTrue(readYourWrites.find("unknown-user",
+                () -> servedByReadOnly().filter("primary"::equals)).isEmpty());
+    }
+
+    private Optional<String> servedByReadOnly() {
+        return Optional.ofNullable(readOnly.execute(status -> servedBy()));
+    }
+
+    private String servedBy() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static void label(PostgreSQLContainer<?> container, String name) {
+        JdbcTemplate template = new JdbcTemplate(pool(container));
+        template.execute("CREATE TABLE IF NOT EXISTS node (name TEXT)");
+        template.update("DELETE FROM node");
+        template.update("INSERT INTO node (name) VALUES (?)", name);
+        ((HikariDataSource) template.getDataSource()).close();
+    }
+
+    private static HikariDataSource pool(PostgreSQLContainer<?> container) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(container.getJdbcUrl());
+        dataSource.setUsername(container.getUsername());
+        dataSource.setPassword(container.getPassword());
+        dataSource.setMaximumPoolSize(2);
+        return dataSource;
+    }
+}
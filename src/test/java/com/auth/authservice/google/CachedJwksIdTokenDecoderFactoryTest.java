@@ -0,0 +1,147 @@
+package com.auth.authservice.google;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedJwksIdTokenDecoderFactoryTest {
+
+    // Stands in for Google's certs endpoint, counting how often the keys are downloaded
+    private HttpServer issuer;
+    private final List<RSAKey> publishedKeys = new CopyOnWriteArrayList<>();
+    private final AtomicInteger jwksFetches = new AtomicInteger();
+    private ClientRegistration registration;
+
+    @BeforeEach
+    void startIssuer() throws Exception {
+        issuer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        issuer.createContext("/certs", exchange -> {
+            jwksFetches.incrementAndGet();
+            byte[] body = new JWKSet(publishedKeys.stream().map(key -> (JWK) key.toPublicJWK()).toList())
+                    .toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        issuer.start();
+
+        String issuerUri = "http://127.0.0.1:" + issuer.getAddress().getPort();
+        registration = ClientRegistration.withRegistrationId("google")
+                .clientId("client")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .scope("openid", "email")
+                .authorizationUri(issuerUri + "/authorize")
+                .tokenUri(issuerUri + "/token")
+                .jwkSetUri(issuerUri + "/certs")
+                .issuerUri(issuerUri)
+                .userNameAttributeName("sub")
+                .build();
+    }
+
+    @AfterEach
+    void stopIssuer() {
+        issuer.stop(0);
+    }
+
+    @Test
+    void tokensAreVerifiedAgainstKeysFetchedInTheBackground() throws Exception {
+        RSAKey key = generateKey("k1");
+        publishedKeys.add(key);
+        ProviderJwksCache cache = cache(30000);
+        cache.refreshAll();
+        JwtDecoder decoder = new CachedJwksIdTokenDecoderFactory(cache).createDecoder(registration);
+
+        for (int i = 0; i < 3; i++) {
+            Jwt jwt = decoder.decode(idToken(key, "client"));
+            assertEquals("alice@example.com", jwt.getClaimAsString("email"));
+        }
+        assertEquals(1, jwksFetches.get());
+    }
+
+    @Test
+    void rotatedKeyIsFetchedOnceAndUnknownKeysAreRateLimited() throws Exception {
+        RSAKey oldKey = generateKey("old");
+        publishedKeys.add(oldKey);
+        ProviderJwksCache cache = cache(0);
+        cache.refreshAll();
+        JwtDecoder decoder = new CachedJwksIdTokenDecoderFactory(cache).createDecoder(registration);
+
+        RSAKey newKey = generateKey("new");
+        publishedKeys.add(newKey);
+        assertNotNull(decoder.decode(idToken(newKey, "client")));
+        assertNotNull(decoder.decode(idToken(newKey, "client")));
+        assertEquals(2, jwksFetches.get());
+
+        ProviderJwksCache coolingDown = cache(60000);
+        coolingDown.refreshAll();
+        JwtDecoder limited = new CachedJwksIdTokenDecoderFactory(coolingDown).createDecoder(registration);
+        String forged = idToken(generateKey("unknown"), "client");
+        assertThrows(JwtException.class, () -> limited.decode(forged));
+        assertThrows(JwtException.class, () -> limited.decode(forged));
+        assertEquals(3, jwksFetches.get());
+    }
+
+    @Test
+    void tokensForAnotherClientAreRejected() throws Exception {
+        RSAKey key = generateKey("k1");
+        publishedKeys.add(key);
+        ProviderJwksCache cache = cache(30000);
+        cache.refreshAll();
+
+        JwtDecoder decoder = new CachedJwksIdTokenDecoderFactory(cache).createDecoder(registration);
+
+        assertThrows(JwtException.class, () -> decoder.decode(idToken(key, "someone-else")));
+    }
+
+    private ProviderJwksCache cache(long refreshCooldownMs) {
+        return new ProviderJwksCache(new InMemoryClientRegistrationRepository(registration), 2000, refreshCooldownMs);
+    }
+
+    private static RSAKey generateKey(String kid) throws Exception {
+        return new RSAKeyGenerator(2048).keyID(kid).generate();
+    }
+
+    private String idToken(RSAKey key, String audience) throws Exception {
+        Instant now = Instant.now();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+                new JWTClaimsSet.Builder()
+                        .issuer(registration.getProviderDetails().getIssuerUri())
+                        .subject("1234")
+                        .audience(audience)
+                        .issueTime(Date.from(now))
+                        .expirationTime(Date.from(now.plusSeconds(300)))
+                        .claim("email", "alice@example.com")
+                        .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+}
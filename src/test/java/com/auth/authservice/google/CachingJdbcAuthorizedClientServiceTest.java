@@ -0,0 +1,126 @@
+package com.auth.authservice.google;
+
+import com.auth.authservice.crypto.AesGcmCipher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class CachingJdbcAuthorizedClientServiceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    private final ClientRegistration registration = ClientRegistration.withRegistrationId("gmail")
+            .clientId("client")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri("https://accounts.example.com/auth")
+            .tokenUri("https://accounts.example.com/token")
+            .build();
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        service(100).createTable();
+        jdbcTemplate.update("DELETE FROM oauth2_authorized_client");
+    }
+
+    @Test
+    void clientSavedOnOneNodeIsLoadedOnAnother() {
+        service(100).saveAuthorizedClient(client("alice", "access-1", Instant.now(), "refresh-1"), principal("alice"));
+
+        OAuth2AuthorizedClient loaded = service(100).loadAuthorizedClient("gmail", "alice");
+
+        assertEquals("access-1", loaded.getAccessToken().getTokenValue());
+        assertEquals("refresh-1", loaded.getRefreshToken().getTokenValue());
+        assertNull(service(100).loadAuthorizedClient("gmail", "bob"));
+    }
+
+    @Test
+    void savingAgainReplacesTheStoredTokens() {
+        CachingJdbcAuthorizedClientService service = service(100);
+        service.saveAuthorizedClient(client("alice", "access-1", Instant.now(), "refresh-1"), principal("alice"));
+        service.saveAuthorizedClient(client("alice", "access-2", Instant.now(), "refresh-2"), principal("alice"));
+
+        assertEquals("access-2", service(100).loadAuthorizedClient("gmail", "alice").getAccessToken().getTokenValue());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM oauth2_authorized_client", Integer.class));
+    }
+
+    @Test
+    void tokensAreEncryptedAtRest() {
+        service(100).saveAuthorizedClient(client("alice", "access-1", Instant.now(), "refresh-1"), principal("alice"));
+
+        byte[] stored = jdbcTemplate.queryForObject(
+                "SELECT refresh_token_value FROM oauth2_authorized_client WHERE principal_name = 'alice'", byte[].class);
+        assertFalse(new String(stored, StandardCharsets.ISO_8859_1).contains("refresh-1"));
+
+        // A plaintext row from before encryption reads as absent and is removed
+        jdbcTemplate.update("UPDATE oauth2_authorized_client SET refresh_token_value = ? WHERE principal_name = 'alice'",
+                "refresh-1".getBytes(StandardCharsets.UTF_8));
+        assertNull(service(100).loadAuthorizedClient("gmail", "alice"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM oauth2_authorized_client", Integer.class));
+    }
+
+    @Test
+    void unusableClientsArePurgedInBatches() {
+        CachingJdbcAuthorizedClientService service = service(2);
+        Instant hourAgo = Instant.now().minus(1, ChronoUnit.HOURS);
+        for (int i = 0; i < 5; i++) {
+            service.saveAuthorizedClient(client("expired-" + i, "access", hourAgo, null), principal("expired-" + i));
+        }
+        service.saveAuthorizedClient(client("stale", "access", Instant.now().minus(200, ChronoUnit.DAYS), "refresh"), principal("stale"));
+        service.saveAuthorizedClient(client("refreshable", "access", hourAgo, "refresh"), principal("refreshable"));
+        // Refreshed an hour ago with the refresh token Google issued at the first consent
+        service.saveAuthorizedClient(client("in-use", "access", hourAgo, "refresh", Instant.now().minus(200, ChronoUnit.DAYS)),
+                principal("in-use"));
+
+        service.purgeExpired();
+
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT count(*) FROM oauth2_authorized_client", Integer.class));
+        assertNotNull(service(2).loadAuthorizedClient("gmail", "refreshable"));
+        assertNotNull(service(2).loadAuthorizedClient("gmail", "in-use"));
+    }
+
+    private CachingJdbcAuthorizedClientService service(int cleanupBatchSize) {
+        return new CachingJdbcAuthorizedClientService(new SimpleMeterRegistry(), jdbcTemplate,
+                new InMemoryClientRegistrationRepository(registration), new AesGcmCipher("", "test-secret"), 100, 300, cleanupBatchSize, 180);
+    }
+
+    // The access token was issued at issuedAt and lived for a minute
+    private OAuth2AuthorizedClient client(String principalName, String accessToken, Instant issuedAt, String refreshToken) {
+        return client(principalName, accessToken, issuedAt, refreshToken, issuedAt);
+    }
+
+    private OAuth2AuthorizedClient client(String principalName, String accessToken, Instant issuedAt,
+                                          String refreshToken, Instant refreshTokenIssuedAt) {
+        return new OAuth2AuthorizedClient(registration, principalName,
+                new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, accessToken, issuedAt, issuedAt.plusSeconds(60)),
+                refreshToken == null ? null : new OAuth2RefreshToken(refreshToken, refreshTokenIssuedAt));
+    }
+
+    private static TestingAuthenticationToken principal(String name) {
+        return new TestingAuthenticationToken(name, null);
+    }
+}
@@ -0,0 +1,85 @@
+package com.auth.authservice.google;
+
+import com.auth.authservice.crypto.AesGcmCipher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CookieAuthorizationRequestRepositoryTest {
+
+    private static final String SECRET = "test-secret";
+
+    private final OAuth2AuthorizationRequest authorizationRequest = OAuth2AuthorizationRequest.authorizationCode()
+            .authorizationUri("https://accounts.example.com/auth")
+            .clientId("client")
+            .redirectUri("http://localhost:8080/login/oauth2/code/google")
+            .scopes(Set.of("openid", "email"))
+            .state("state-1")
+            .additionalParameters(Map.of("nonce", "hashed-nonce"))
+            .attributes(Map.of("registration_id", "google", "nonce", "raw-nonce"))
+            .build();
+
+    @Test
+    void requestSavedOnOneNodeIsLoadedOnAnother() {
+        Cookie cookie = save(repository(SECRET, 300));
+
+        OAuth2AuthorizationRequest loaded = repository(SECRET, 300).loadAuthorizationRequest(callback("state-1", cookie));
+
+        assertNotNull(loaded);
+        assertEquals(authorizationRequest.getAuthorizationRequestUri(), loaded.getAuthorizationRequestUri());
+        assertEquals(authorizationRequest.getScopes(), loaded.getScopes());
+        assertEquals(authorizationRequest.getAttributes(), loaded.getAttributes());
+        assertEquals(authorizationRequest.getAdditionalParameters(), loaded.getAdditionalParameters());
+    }
+
+    @Test
+    void mismatchedStateExpiredOrForeignCookiesAreIgnored() {
+        Cookie cookie = save(repository(SECRET, 300));
+
+        assertNull(repository(SECRET, 300).loadAuthorizationRequest(callback("other-state", cookie)));
+        assertNull(repository("another-secret", 300).loadAuthorizationRequest(callback("state-1", cookie)));
+        assertNull(repository(SECRET, 300).loadAuthorizationRequest(callback("state-1", new Cookie(cookie.getName(), "garbage"))));
+        assertNull(repository(SECRET, 300).loadAuthorizationRequest(callback("state-1", save(repository(SECRET, -1)))));
+    }
+
+    @Test
+    void removingClearsTheCookie() {
+        Cookie cookie = save(repository(SECRET, 300));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNotNull(repository(SECRET, 300).removeAuthorizationRequest(callback("state-1", cookie), response));
+        assertEquals(0, response.getCookie(CookieAuthorizationRequestRepository.COOKIE_NAME).getMaxAge());
+    }
+
+    private Cookie save(CookieAuthorizationRequestRepository repository) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        repository.saveAuthorizationRequest(authorizationRequest, new MockHttpServletRequest(), response);
+        Cookie cookie = response.getCookie(CookieAuthorizationRequestRepository.COOKIE_NAME);
+        assertTrue(cookie.isHttpOnly());
+        return new Cookie(cookie.getName(), cookie.getValue());
+    }
+
+    private static MockHttpServletRequest callback(String state, Cookie cookie) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/login/oauth2/code/google");
+        request.setParameter("state", state);
+        request.setCookies(cookie);
+        return request;
+    }
+
+    private static CookieAuthorizationRequestRepository repository(String secret, long maxAgeSeconds) {
+        CookieAuthorizationRequestRepository repository =
+                new CookieAuthorizationRequestRepository(new AesGcmCipher("", secret), new ObjectMapper());
+        ReflectionTestUtils.setField(repository, "maxAgeSeconds", maxAgeSeconds);
+        ReflectionTestUtils.setField(repository, "secure", true);
+        return repository;
+    }
+}
@@ -0,0 +1,62 @@
+package com.auth.authservice.google;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class JdbcCodeStoreTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        new JdbcCodeStore(meterRegistry, jdbcTemplate, 60000, 100).createTable();
+        jdbcTemplate.update("DELETE FROM oauth_retrieval_codes");
+    }
+
+    @Test
+    void codeIsRedeemedExactlyOnce() {
+        JdbcCodeStore store = new JdbcCodeStore(meterRegistry, jdbcTemplate, 60000, 100);
+        store.saveCode("googleLogin", "abc", "jwt-token");
+
+        assertEquals("jwt-token", store.getToken("googleLogin", "abc"));
+        assertNull(store.getToken("googleLogin", "abc"));
+    }
+
+    @Test
+    void codeSavedOnOneNodeIsRedeemableOnAnother() {
+        new JdbcCodeStore(meterRegistry, jdbcTemplate, 60000, 100).saveCode("gmail", "xyz", "gmail-token");
+
+        assertEquals("gmail-token", new JdbcCodeStore(meterRegistry, jdbcTemplate, 60000, 100).getToken("gmail", "xyz"));
+    }
+
+    @Test
+    void expiredCodesAreNotReturnedAndGetPurgedInBatches() {
+        JdbcCodeStore expiring = new JdbcCodeStore(meterRegistry, jdbcTemplate, 0, 2);
+        for (int i = 0; i < 5; i++) {
+            expiring.saveCode("googleLogin", "code-" + i, "token-" + i);
+        }
+        new JdbcCodeStore(meterRegistry, jdbcTemplate, 60000, 2).saveCode("googleLogin", "live", "live-token");
+
+        assertNull(expiring.getToken("googleLogin", "code-0"));
+
+        expiring.purgeExpired();
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM oauth_retrieval_codes", Integer.class));
+        assertEquals("live-token", expiring.getToken("googleLogin", "live"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.auth.authservice.jwt;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("jwt-utils-test-secret-jwt-utils-test".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void hs256TokensWithoutAKidAreRejectedOnceTheServiceSignsWithKeyPairs() {
+        String legacyToken = jwtUtils(hs256(), "").generateToken(user());
+
+        assertThrows(JwtException.class, () -> jwtUtils(rs256(), "").parseClaims(legacyToken));
+        assertThrows(JwtException.class,
+                () -> jwtUtils(rs256(), Instant.now().minusSeconds(1).toString()).parseClaims(legacyToken));
+    }
+
+    @Test
+    void hs256TokensWithoutAKidAreAcceptedDuringTheTransitionWindow() {
+        String legacyToken = jwtUtils(hs256(), "").generateToken(user());
+
+        JwtUtils switched = jwtUtils(rs256(), Instant.now().plusSeconds(3600).toString());
+
+        assertEquals("alice", switched.parseClaims(legacyToken).getSubject());
+    }
+
+    private static JwtUtils jwtUtils(SigningKeyManager signingKeyManager, String legacyHs256Until) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "expirationInMs", 60000L);
+        ReflectionTestUtils.setField(jwtUtils, "legacyHs256Until", legacyHs256Until);
+        ReflectionTestUtils.setField(jwtUtils, "signingKeyManager", signingKeyManager);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    private static SigningKeyManager hs256() {
+        SigningKeyManager signingKeyManager = new SigningKeyManager();
+        ReflectionTestUtils.setField(signingKeyManager, "algorithmName", "HS256");
+        signingKeyManager.init();
+        return signingKeyManager;
+    }
+
+    // Only the verification side is exercised, so no key pairs have to be loaded
+    private static SigningKeyManager rs256() {
+        SigningKeyManager signingKeyManager = new SigningKeyManager();
+        ReflectionTestUtils.setField(signingKeyManager, "algorithm", SignatureAlgorithm.RS256);
+        return signingKeyManager;
+    }
+
+    private static User user() {
+        return (User) User.withUsername("alice").password("").roles("USER").build();
+    }
+}
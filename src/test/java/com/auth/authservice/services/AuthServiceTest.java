@@ -0,0 +1,89 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.dto.requestDto.RefreshTokenRequestDto;
+import com.auth.authservice.jwt.JwtUtils;
+import com.auth.authservice.jwt.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AuthServiceTest {
+
+    private JwtUtils jwtUtils;
+    private RefreshTokenService refreshTokenService;
+    private TokenRevocationService tokenRevocationService;
+    private CustomUserDetailsService userDetailsService;
+    private AuthService service;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = mock(JwtUtils.class);
+        refreshTokenService = mock(RefreshTokenService.class);
+        tokenRevocationService = mock(TokenRevocationService.class);
+        userDetailsService = mock(CustomUserDetailsService.class);
+
+        service = new AuthService();
+        service.refreshTokenService = refreshTokenService;
+        service.tokenRevocationService = tokenRevocationService;
+        service.userDetailsService = userDetailsService;
+        service.verifiedTokenCache = mock(VerifiedTokenCache.class);
+        ReflectionTestUtils.setField(service, "jwtUtils", jwtUtils);
+    }
+
+    @Test
+    void logoutRevokesTheRefreshTokenFamily() {
+        UUID familyId = UUID.randomUUID();
+        when(jwtUtils.parseClaims("access")).thenReturn(claims(familyId));
+
+        service.logout("access");
+
+        verify(tokenRevocationService).revoke(eq("jti"), any());
+        verify(refreshTokenService).revokeFamily(familyId);
+    }
+
+    @Test
+    void logoutOfATokenWithoutAFamilyOnlyRevokesTheAccessToken() {
+        when(jwtUtils.parseClaims("google")).thenReturn(claims(null));
+
+        service.logout("google");
+
+        verify(tokenRevocationService).revoke(eq("jti"), any());
+        verify(refreshTokenService, never()).revokeFamily(any());
+    }
+
+    @Test
+    void refreshedAccessTokenKeepsTheFamily() {
+        // Otherwise logging out with a refreshed access token would leave the family redeemable
+        UUID familyId = UUID.randomUUID();
+        UserDetails user = User.withUsername("alice").password("hash").roles("USER").build();
+        when(refreshTokenService.rotate("refresh-1"))
+                .thenReturn(new RefreshTokenService.Rotation("alice", familyId, "refresh-2"));
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(user);
+        when(jwtUtils.generateToken(user, familyId)).thenReturn("access-2");
+
+        assertEquals("access-2", service.refresh(new RefreshTokenRequestDto("refresh-1")).getToken());
+    }
+
+    private static Claims claims(UUID familyId) {
+        Claims claims = Jwts.claims()
+                .setId("jti")
+                .setSubject("alice")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000));
+        if (familyId != null) {
+            claims.put(JwtUtils.SESSION_CLAIM, familyId.toString());
+        }
+        return claims;
+    }
+}
@@ -0,0 +1,73 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.dto.UserCredentials;
+import com.auth.authservice.enums.UserRole;
+import com.auth.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CustomUserDetailsServiceTest {
+
+    private UserRepository userRepository;
+    private KnownIdentifierFilter knownIdentifierFilter;
+    private CustomUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        knownIdentifierFilter = mock(KnownIdentifierFilter.class);
+
+        service = new CustomUserDetailsService();
+        service.userRepository = userRepository;
+        service.knownIdentifierFilter = knownIdentifierFilter;
+        service.readYourWrites = new ReadYourWrites(List.of(), 5000, 100);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(service, "cacheTtlSeconds", 300L);
+        service.initCache();
+    }
+
+    @Test
+    void accountTheFilterCannotRuleOutIsLookedUp() {
+        when(knownIdentifierFilter.isDefinitelyUnknown("carol")).thenReturn(false);
+        when(userRepository.findCredentialsByUsername("carol"))
+                .thenReturn(Optional.of(new UserCredentials("carol", "carol@example.com", "hash", UserRole.USER)));
+
+        assertEquals("carol", service.loadUserByUsername("carol").getUsername());
+    }
+
+    @Test
+    void usernameEqualToAnotherUsersEmailIsNotServedTheirRecord() {
+        when(userRepository.findCredentialsByEmail("mallory@example.com"))
+                .thenReturn(Optional.of(new UserCredentials("erin@example.com", "mallory@example.com", "mallory-hash", UserRole.USER)));
+        when(userRepository.findCredentialsByEmail("erin@example.com"))
+                .thenReturn(Optional.of(new UserCredentials("erin", "erin@example.com", "erin-hash", UserRole.USER)));
+
+        // Caches mallory under her username, which is erin's email
+        service.loadUserByUsername("mallory@example.com");
+
+        UserDetails erin = service.loadUserByUsername("erin@example.com");
+        assertEquals("erin", erin.getUsername());
+        assertEquals("erin-hash", erin.getPassword());
+    }
+
+    @Test
+    void unknownIdentifiersAreRejectedWithoutAQuery() {
+        when(knownIdentifierFilter.isDefinitelyUnknown("nobody")).thenReturn(true);
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nobody"));
+        verify(userRepository, never()).findCredentialsByUsername(anyString());
+    }
+}
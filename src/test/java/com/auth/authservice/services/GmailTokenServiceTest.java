@@ -0,0 +1,234 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.crypto.AesGcmCipher;
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.entities.GmailGrant;
+import com.auth.authservice.repository.GmailGrantRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GmailTokenServiceTest {
+
+    // Stands in for Google's token endpoint, answering refresh_token grants after a short delay
+    private HttpServer tokenEndpoint;
+    private final AtomicInteger refreshCalls = new AtomicInteger();
+    private final AtomicReference<String> nextError = new AtomicReference<>();
+
+    private final Map<String, GmailGrant> grants = new ConcurrentHashMap<>();
+    private GmailGrantRepository repository;
+    private GmailTokenService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tokenEndpoint = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        tokenEndpoint.setExecutor(Executors.newCachedThreadPool());
+        tokenEndpoint.createContext("/token", exchange -> {
+            int call = refreshCalls.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String error = nextError.get();
+            byte[] body = (error != null
+                    ? "{\"error\":\"" + error + "\"}"
+                    : "{\"access_token\":\"refreshed-" + call + "\",\"token_type\":\"Bearer\",\"expires_in\":3600}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(error != null ? 400 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        tokenEndpoint.start();
+
+        ClientRegistration registration = ClientRegistration.withRegistrationId("gmail")
+                .clientId("client")
+                .clientSecret("secret")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri("http://127.0.0.1/authorize")
+                .tokenUri("http://127.0.0.1:" + tokenEndpoint.getAddress().getPort() + "/token")
+                .build();
+
+        repository = mock(GmailGrantRepository.class);
+        when(repository.findById(anyString())).thenAnswer(inv -> Optional.ofNullable(grants.get(inv.<String>getArgument(0))));
+        when(repository.upsert(anyString(), any(), any(), any(), any(), any())).thenAnswer(inv -> {
+            grants.put(inv.getArgument(0), GmailGrant.builder()
+                    .email(inv.getArgument(0))
+                    .accessToken(inv.getArgument(1))
+                    .accessTokenExpiresAt(inv.getArgument(2))
+                    .refreshToken(inv.getArgument(3))
+                    .scopes(inv.getArgument(4))
+                    .lastUsedAt(inv.getArgument(5))
+                    .updatedAt(inv.getArgument(5))
+                    .build());
+            return 1;
+        });
+        when(repository.updateAccessToken(anyString(), any(), any(), any(), any())).thenAnswer(inv -> {
+            GmailGrant grant = grants.get(inv.<String>getArgument(0));
+            grant.setAccessToken(inv.getArgument(1));
+            grant.setAccessTokenExpiresAt(inv.getArgument(2));
+            grant.setRefreshToken(inv.getArgument(3));
+            return 1;
+        });
+        doAnswer(inv -> grants.remove(inv.<String>getArgument(0))).when(repository).deleteById(anyString());
+
+        service = new GmailTokenService();
+        ReflectionTestUtils.setField(service, "gmailGrantRepository", repository);
+        ReflectionTestUtils.setField(service, "cipher", new AesGcmCipher("", "test-secret"));
+        ReflectionTestUtils.setField(service, "clientRegistrationRepository", new InMemoryClientRegistrationRepository(registration));
+        ReflectionTestUtils.setField(service, "readYourWrites", new ReadYourWrites(List.of(), 5000, 100));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "refreshAheadMs", 300000L);
+        ReflectionTestUtils.setField(service, "minValidityMs", 60000L);
+        ReflectionTestUtils.setField(service, "activeWindowMs", 86400000L);
+        ReflectionTestUtils.setField(service, "refreshBatchSize", 100);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(service, "tokenEndpointTimeoutMs", 2000);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenEndpoint.stop(0);
+    }
+
+    @Test
+    void freshTokenIsServedFromMemory() {
+        service.store("alice@example.com", client("access-1", Instant.now().plusSeconds(3600)));
+
+        GmailTokenService.AccessToken token = service.accessToken("alice@example.com");
+
+        assertEquals("access-1", token.tokenValue());
+        assertEquals(0, refreshCalls.get());
+        verify(repository, never()).findById(anyString());
+    }
+
+    @Test
+    void concurrentRequestsForAnExpiredTokenShareOneRefresh() throws Exception {
+        service.store("alice@example.com", client("expired", Instant.now().minusSeconds(10)));
+
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<GmailTokenService.AccessToken>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.accessToken("alice@example.com");
+                }));
+            }
+            start.countDown();
+            for (Future<GmailTokenService.AccessToken> result : results) {
+                assertEquals("refreshed-1", result.get().tokenValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, refreshCalls.get());
+        assertEquals("refreshed-1", service.accessToken("alice@example.com").tokenValue());
+        assertEquals(1, refreshCalls.get());
+    }
+
+    @Test
+    void scheduledRefreshRenewsTokensBeforeTheyExpire() {
+        service.store("alice@example.com", client("expiring", Instant.now().plusSeconds(120)));
+        when(repository.claimDueForRefresh(any(), any(), any(), any(), anyInt()))
+                .thenReturn(List.of("alice@example.com"), List.of());
+
+        service.refreshExpiring();
+
+        assertEquals(1, refreshCalls.get());
+        assertEquals("refreshed-1", service.accessToken("alice@example.com").tokenValue());
+    }
+
+    @Test
+    void eachBatchIsClaimedFromItsOwnStartForTheWholeBatch() {
+        ReflectionTestUtils.setField(service, "refreshBatchSize", 1);
+        service.store("alice@example.com", client("expiring", Instant.now().plusSeconds(120)));
+        service.store("bob@example.com", client("expiring", Instant.now().plusSeconds(120)));
+        List<Instant> claimedAt = new ArrayList<>();
+        List<Instant> claimedUntil = new ArrayList<>();
+        when(repository.claimDueForRefresh(any(), any(), any(), any(), anyInt())).thenAnswer(inv -> {
+            claimedAt.add(inv.getArgument(2));
+            claimedUntil.add(inv.getArgument(3));
+            return switch (claimedAt.size()) {
+                case 1 -> List.of("alice@example.com");
+                case 2 -> List.of("bob@example.com");
+                default -> List.of();
+            };
+        });
+
+        service.refreshExpiring();
+
+        assertEquals(2, refreshCalls.get());
+        // The token endpoint takes 200ms, the second batch's claim starts after the first refresh
+        assertTrue(!claimedAt.get(1).isBefore(claimedAt.get(0).plusMillis(200)));
+        // Connect and read timeout for every grant in the batch
+        assertEquals(claimedAt.get(0).plusMillis(2 * 2000), claimedUntil.get(0));
+    }
+
+    @Test
+    void revokedGrantIsDeleted() {
+        service.store("alice@example.com", client("expired", Instant.now().minusSeconds(10)));
+        nextError.set("invalid_grant");
+
+        assertThrows(GmailTokenService.GrantNotFoundException.class, () -> service.accessToken("alice@example.com"));
+        assertFalse(grants.containsKey("alice@example.com"));
+    }
+
+    @Test
+    void otherRefreshFailuresKeepTheGrant() {
+        service.store("alice@example.com", client("expired", Instant.now().minusSeconds(10)));
+        nextError.set("temporarily_unavailable");
+
+        assertThrows(GmailTokenService.TokenRefreshFailedException.class, () -> service.accessToken("alice@example.com"));
+        assertTrue(grants.containsKey("alice@example.com"));
+    }
+
+    private static OAuth2AuthorizedClient client(String accessToken, Instant expiresAt) {
+        ClientRegistration registration = ClientRegistration.withRegistrationId("gmail")
+                .clientId("client")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri("http://127.0.0.1/authorize")
+                .tokenUri("http://127.0.0.1/token")
+                .build();
+        return new OAuth2AuthorizedClient(registration, "alice",
+                new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, accessToken, expiresAt.minusSeconds(3600), expiresAt),
+                new OAuth2RefreshToken("refresh-1", expiresAt.minusSeconds(3600)));
+    }
+}
@@ -0,0 +1,62 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.dto.responseDto.LoginResponseDto;
+import com.auth.authservice.google.CodeStore;
+import com.auth.authservice.jwt.VerifiedTokenCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class GoogleAuthServiceTest {
+
+    private GmailTokenService gmailTokenService;
+    private GoogleAuthService service;
+
+    @BeforeEach
+    void setUp() {
+        gmailTokenService = mock(GmailTokenService.class);
+        service = new GoogleAuthService();
+        service.gmailTokenService = gmailTokenService;
+        service.codeStore = mock(CodeStore.class);
+    }
+
+    @Test
+    void basicUserNamedLikeAGoogleUserGetsNoGmailToken() {
+        // Signed up with the username "bob", as bob@gmail.com's Google login would be named
+        VerifiedTokenCache.VerifiedToken basicUser = principal("bob", null);
+
+        assertThrows(AccessDeniedException.class, () -> service.getGmailAccessToken(basicUser));
+        verify(gmailTokenService, never()).accessToken(anyString());
+    }
+
+    @Test
+    void grantIsLookedUpByTheGoogleEmailInTheToken() {
+        when(gmailTokenService.accessToken("bob@gmail.com"))
+                .thenReturn(new GmailTokenService.AccessToken("bob@gmail.com", "gmail-access", Instant.now().plusSeconds(3600)));
+
+        assertEquals("gmail-access", service.getGmailAccessToken(principal("bob", "bob@gmail.com")).getAccessToken());
+    }
+
+    @Test
+    void codeExchangeHandsOutTheAccessTokenOnly() {
+        when(service.codeStore.getToken("gmail", "code-1")).thenReturn("bob@gmail.com");
+        when(gmailTokenService.accessToken("bob@gmail.com"))
+                .thenReturn(new GmailTokenService.AccessToken("bob@gmail.com", "gmail-access", Instant.now().plusSeconds(3600)));
+
+        LoginResponseDto response = service.getGmailTokens("code-1");
+
+        assertEquals("gmail-access", response.getToken());
+        assertNull(response.getRefreshToken());
+    }
+
+    private static VerifiedTokenCache.VerifiedToken principal(String username, String googleEmail) {
+        return new VerifiedTokenCache.VerifiedToken("jti", username, List.of(), Instant.now().plusSeconds(60), googleEmail);
+    }
+}
@@ -0,0 +1,117 @@
+package com.auth.authservice.services;
+
+import com.auth.authservice.datasource.ReadYourWrites;
+import com.auth.authservice.dto.LoginIdentifiers;
+import com.auth.authservice.repository.GoogleUsersRepository;
+import com.auth.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class KnownIdentifierFilterTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    private UserRepository userRepository;
+    private GoogleUsersRepository googleUsersRepository;
+    private KnownIdentifierFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        googleUsersRepository = mock(GoogleUsersRepository.class);
+        when(googleUsersRepository.streamIdentifiersCreatedSince(any())).thenAnswer(inv -> Stream.empty());
+
+        filter = new KnownIdentifierFilter();
+        filter.userRepository = userRepository;
+        filter.googleUsersRepository = googleUsersRepository;
+        ReflectionTestUtils.setField(filter, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(filter, "readYourWrites", new ReadYourWrites(List.of(), 5000, 100));
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(filter, "refreshIntervalMs", 10000L);
+        ReflectionTestUtils.setField(filter, "rescanOverlapMs", 10000L);
+        ReflectionTestUtils.setField(filter, "catchUpIntervalMs", 1000L);
+    }
+
+    @Test
+    void rescansStartJustBeforeTheNewestRowSeen() {
+        when(userRepository.streamIdentifiersCreatedSince(Instant.EPOCH))
+                .thenAnswer(inv -> Stream.of(identifiers("alice", T0), identifiers("bob", T0.plusSeconds(60))));
+        when(userRepository.streamIdentifiersCreatedSince(T0.plusSeconds(50)))
+                .thenAnswer(inv -> Stream.of(identifiers("bob", T0.plusSeconds(60)), identifiers("carol", T0.plusSeconds(70))));
+
+        filter.load();
+        filter.refresh();
+        filter.refresh();
+
+        verify(userRepository).streamIdentifiersCreatedSince(Instant.EPOCH);
+        verify(userRepository).streamIdentifiersCreatedSince(T0.plusSeconds(50));
+        // carol moved the mark forward
+        verify(userRepository).streamIdentifiersCreatedSince(T0.plusSeconds(60));
+        assertTrue(filter.mightContain("carol@example.com"));
+    }
+
+    @Test
+    void missRescansOnceBeforeRejecting() {
+        when(userRepository.streamIdentifiersCreatedSince(Instant.EPOCH))
+                .thenAnswer(inv -> Stream.of(identifiers("alice", T0)));
+        when(userRepository.streamIdentifiersCreatedSince(T0.minusSeconds(10)))
+                .thenAnswer(inv -> Stream.of(identifiers("alice", T0), identifiers("dave", T0.plusSeconds(1))));
+        filter.load();
+        ReflectionTestUtils.setField(filter, "lastRefreshMillis", 0L);
+        ReflectionTestUtils.setField(filter, "lastAttemptMillis", 0L);
+
+        // Registered on another node since the last rescan
+        assertFalse(filter.isDefinitelyUnknown("dave"));
+        assertTrue(filter.isDefinitelyUnknown("mallory"));
+
+        // The catch-up rescan is fresh, so the second miss cost no query
+        verify(userRepository, times(1)).streamIdentifiersCreatedSince(T0.minusSeconds(10));
+        verify(userRepository, times(2)).streamIdentifiersCreatedSince(any());
+    }
+
+    @Test
+    void missesAreNotRejectedWhileRescansFail() {
+        when(userRepository.streamIdentifiersCreatedSince(Instant.EPOCH))
+                .thenAnswer(inv -> Stream.of(identifiers("alice", T0)));
+        filter.load();
+        when(userRepository.streamIdentifiersCreatedSince(T0.minusSeconds(10)))
+                .thenThrow(new IllegalStateException("primary unreachable"));
+        ReflectionTestUtils.setField(filter, "lastRefreshMillis", System.currentTimeMillis() - 30000);
+        ReflectionTestUtils.setField(filter, "lastAttemptMillis", 0L);
+
+        assertFalse(filter.isDefinitelyUnknown("mallory"));
+    }
+
+    private static LoginIdentifiers identifiers(String username, Instant createdAt) {
+        return new LoginIdentifiers() {
+            @Override
+            public String getUsername() {
+                return username;
+            }
+
+            @Override
+            public String getEmail() {
+                return username + "@example.com";
+            }
+
+            @Override
+            public Instant getCreatedAt() {
+                return createdAt;
+            }
+        };
+    }
+}
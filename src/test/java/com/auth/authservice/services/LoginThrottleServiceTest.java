@@ -0,0 +1,79 @@
+package com.auth.authservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.autoconfigure.web.embedded.TomcatWebServerFactoryCustomizer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleServiceTest {
+
+    private LoginThrottleService loginThrottleService;
+    private WebServer webServer;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // One attempt per address, so a second attempt from the same client is throttled
+        loginThrottleService = new LoginThrottleService(new SimpleMeterRegistry(), 100, 100, 1, 1, 1000);
+
+        // Tomcat configured the way the prod profile configures it
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new ResourcePropertySource(new ClassPathResource("application-prod.properties")));
+        ServerProperties serverProperties = Binder.get(environment).bind("server", ServerProperties.class).get();
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        new TomcatWebServerFactoryCustomizer(environment, serverProperties).customize(factory);
+        // Same key as BasicAuthController.userBasicLogin
+        webServer = factory.getWebServer(servletContext -> servletContext.addServlet("login", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                try {
+                    loginThrottleService.checkLogin(null, request.getRemoteAddr());
+                    response.setStatus(200);
+                } catch (LoginThrottleService.TooManyAttemptsException e) {
+                    response.setStatus(429);
+                }
+            }
+        }).addMapping("/login"));
+        webServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        webServer.stop();
+    }
+
+    @Test
+    void clientsBehindTheSameProxyGetSeparateBuckets() throws Exception {
+        // The test's requests come from loopback, a trusted proxy address
+        assertEquals(200, login("203.0.113.10"));
+        assertEquals(200, login("203.0.113.20"));
+        assertEquals(429, login("203.0.113.10"));
+    }
+
+    private int login(String forwardedFor) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + webServer.getPort() + "/login"))
+                .header("X-Forwarded-For", forwardedFor)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}